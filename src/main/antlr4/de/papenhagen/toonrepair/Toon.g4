@@ -5,10 +5,102 @@ grammar Toon;
 
 options { language = Java; }
 
+@lexer::members {
+    private final java.util.ArrayDeque<Token> pendingTokens = new java.util.ArrayDeque<>();
+    private int[] indents = new int[16];
+    private int indentDepth;
+    private boolean atLineStart = true;
+
+    /**
+     * Tracks indentation with a stack of widths. Leading spaces are consumed here, before the rules see them, and
+     * every change of the indentation level is reported as zero-width INDENT or DEDENT tokens, which the parser
+     * uses to nest the lines in blocks. TOON indents with spaces only: leading whitespace with a tab is lexed by the
+     * rules as usual, so a tab starting a tab-delimited row stays a TAB, and the line keeps the current level like
+     * blank and comment lines do. All open levels are closed before EOF. A dedent to a width between two levels
+     * stays at the inner level, which takes the new width, instead of failing.
+     */
+    @Override
+    public Token nextToken() {
+        if (!pendingTokens.isEmpty()) {
+            return pendingTokens.poll();
+        }
+        if (atLineStart) {
+            atLineStart = false;
+            int width = 0;
+            while (_input.LA(width + 1) == ' ') {
+                width++;
+            }
+            final int next = _input.LA(width + 1);
+            if (next != '\t' && next != '\n' && next != '\r' && next != '#' && next != IntStream.EOF) {
+                for (int i = 0; i < width; i++) {
+                    getInterpreter().consume(_input);
+                }
+                indentTo(width);
+            }
+            if (!pendingTokens.isEmpty()) {
+                return pendingTokens.poll();
+            }
+        }
+        final Token token = super.nextToken();
+        if (token.getType() == NEWLINE) {
+            atLineStart = true;
+        } else if (token.getType() == EOF && indentDepth > 0) {
+            while (indentDepth > 0) {
+                indentDepth--;
+                pendingTokens.add(indentationToken(DEDENT));
+            }
+            pendingTokens.add(token);
+            return pendingTokens.poll();
+        }
+        return token;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        pendingTokens.clear();
+        indentDepth = 0;
+        atLineStart = true;
+    }
+
+    private void indentTo(final int width) {
+        final int current = indentDepth == 0 ? 0 : indents[indentDepth - 1];
+        if (width > current) {
+            if (indentDepth == indents.length) {
+                indents = java.util.Arrays.copyOf(indents, indentDepth * 2);
+            }
+            indents[indentDepth++] = width;
+            pendingTokens.add(indentationToken(INDENT));
+            return;
+        }
+        while (indentDepth > 0 && indents[indentDepth - 1] > width) {
+            indentDepth--;
+            pendingTokens.add(indentationToken(DEDENT));
+        }
+        final int outer = indentDepth == 0 ? 0 : indents[indentDepth - 1];
+        if (width > outer) {
+            // inconsistent dedent: stay at the level just closed, now with this width
+            pendingTokens.removeLast();
+            indents[indentDepth++] = width;
+        }
+    }
+
+    private Token indentationToken(final int type) {
+        final int index = _input.index();
+        return _factory.create(_tokenFactorySourcePair, type, "", DEFAULT_TOKEN_CHANNEL, index, index - 1, getLine(),
+                getCharPositionInLine());
+    }
+}
+
 // --------------------------- PARSER RULES ---------------------------
 
 toonFile
-    : (documentLine)* EOF
+    : (documentLine | indentedBlock)* EOF
+    ;
+
+/* the lines of one indentation level, INDENT and DEDENT come from the lexer and are always balanced */
+indentedBlock
+    : INDENT (documentLine | indentedBlock)* DEDENT
     ;
 
 documentLine
@@ -33,14 +125,13 @@ primitiveRootLine
     : value NEWLINE
     ;
 
-/* object field line uses INDENT/DEDENT produced by lexer */
 objectFieldLine
-    : (INDENT)? key COLON (WS_INLINE? value)? NEWLINE
+    : key COLON (WS_INLINE? value)? NEWLINE
     ;
 
 /* list item: hyphen at start of line; content may be header or inline object/value */
 listItemLine
-    : (INDENT)? DASH WS_INLINE? listItemContent? NEWLINE
+    : DASH WS_INLINE? listItemContent? NEWLINE
     ;
 
 listItemContent
@@ -58,12 +149,12 @@ inlineObjectFragment
 
 /* Tabular header (single line header) */
 tabularHeaderLine
-    : (INDENT)? LBRACK bracketLength? bracketDelimSpec? RBRACK WS_INLINE? fieldList COLON? NEWLINE
+    : LBRACK bracketLength? bracketDelimSpec? RBRACK WS_INLINE? fieldList COLON? NEWLINE
     ;
 
 /* Block of tabular rows */
 tabularRowBlock
-    : (INDENT)? tabularRowLine+
+    : tabularRowLine+
     ;
 
 tabularRowLine
@@ -189,8 +280,9 @@ fragment HEX : [0-9a-fA-F] ;
 
 WS_INLINE : [ \t]+ -> skip ;
 
-INDENT : '<INDENT>' ;  // Placeholder for custom lexer logic
-DEDENT : '<DEDENT>' ;  // Placeholder for custom lexer logic
+// Emitted by nextToken() from the indentation; UNQUOTED_CELL always takes the literal forms first
+INDENT : '<INDENT>' ;
+DEDENT : '<DEDENT>' ;
 
 fragment ESC_SEQ
     : '\\' (['"\\/bfnrt] | 'u' HEX HEX HEX HEX)
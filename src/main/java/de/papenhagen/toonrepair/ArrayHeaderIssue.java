@@ -3,9 +3,6 @@ package de.papenhagen.toonrepair;
 
 import org.antlr.v4.runtime.Token;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Handles issues with array headers in TOON files.
  * An array header is expected to be in the format {@code [length delimiter]}.
@@ -13,7 +10,6 @@ import java.util.regex.Pattern;
  */
 final class ArrayHeaderIssue implements SyntaxIssue {
 
-    private static final Pattern HEADER = Pattern.compile("\\[(.*?)]");
     private final Token token;
 
     /**
@@ -26,54 +22,99 @@ final class ArrayHeaderIssue implements SyntaxIssue {
     }
 
     /**
-     * Replaces an invalid array header with its normalized form.
+     * Emits the replacement of an invalid array header with its normalized form.
      * The normalized form is {@code [length delimiter]}.
+     * The header starts at the nearest {@code [} before the token on the same line; a single forward scan up to
+     * the closing {@code ]} extracts length and delimiter, taking them from the innermost bracket if brackets
+     * are nested. The work is linear in the length of the line.
      *
-     * @param source the original source string
-     * @return the repaired source string
+     * @param source the original source
+     * @param edits  the buffer collecting the edits
      */
     @Override
-    public String apply(final String source) {
-        int start = token.getStartIndex();
-        int end = token.getStopIndex();
-        if (start < 0) {
-            return source;
+    public void emit(final CharSequence source, final EditBuffer edits) {
+        final int start = token.getStartIndex();
+        if (start < 0 || start >= source.length()) {
+            return;
         }
-        // Ensure end is within bounds
-        end = Math.min(end, source.length() - 1);
 
-        // Expand to find the brackets [ ]
-        // We look both ways because the token might be inside or after the brackets
-        int actualStart = start;
-        while (actualStart > 0 && source.charAt(actualStart) != '[') {
-            actualStart--;
+        // The token might be inside or after the brackets, but a header never spans lines
+        int open = start;
+        while (open > 0 && !isLineBreak(source.charAt(open)) && source.charAt(open) != '[') {
+            open--;
         }
-
-        int actualEnd = (actualStart >= 0 && source.charAt(actualStart) == '[') ? actualStart : start;
-        while (actualEnd < source.length() - 1 && source.charAt(actualEnd) != ']') {
-            actualEnd++;
+        if (source.charAt(open) != '[') {
+            return;
         }
 
-        if (actualStart < 0 ||
-                actualEnd >= source.length() ||
-                source.charAt(actualStart) != '[' ||
-                source.charAt(actualEnd) != ']') {
-            return source;
+        int length = -1;
+        long part = 0;
+        boolean numeric = false;
+        boolean pipe = false;
+        boolean tab = false;
+        // leading and trailing blanks of the content do not count as a tab delimiter
+        boolean content = false;
+        boolean innerTab = false;
+        int close = -1;
+        for (int i = open + 1; i < source.length() && close < 0; i++) {
+            final char c = source.charAt(i);
+            if (isLineBreak(c)) {
+                return; // unbalanced
+            }
+            switch (c) {
+                case '[' -> {
+                    // nested bracket: the header content starts again, the stray text before it is replaced as well
+                    length = -1;
+                    part = 0;
+                    numeric = false;
+                    pipe = false;
+                    tab = false;
+                    content = false;
+                    innerTab = false;
+                }
+                case ']', ',', '|', '\t', ' ' -> {
+                    if (numeric && length < 0) {
+                        length = (int) part;
+                    }
+                    part = 0;
+                    numeric = false;
+                    pipe |= c == '|';
+                    if (c == '\t') {
+                        innerTab |= content;
+                    } else if (c == ']') {
+                        close = i;
+                    } else if (c != ' ') {
+                        tab |= innerTab;
+                        content = true;
+                    }
+                }
+                default -> {
+                    tab |= innerTab;
+                    content = true;
+                    if (c >= '0' && c <= '9' && (numeric || part == 0) && part <= Integer.MAX_VALUE) {
+                        part = part * 10 + (c - '0');
+                        numeric = part <= Integer.MAX_VALUE;
+                    } else {
+                        part = Integer.MAX_VALUE + 1L; // not a length, skip the rest of this part
+                        numeric = false;
+                    }
+                }
+            }
         }
-
-        final String fragment = source.substring(actualStart, actualEnd + 1);
-        final Matcher matcher = HEADER.matcher(fragment);
-        if (!matcher.find()) {
-            return source;
+        if (close < 0) {
+            return;
         }
 
-        final String content = matcher.group(1);
-        String trimmedContent = content.trim();
-        final int length = extractLength(trimmedContent);
-        final char delimiter = extractDelimiter(trimmedContent);
+        final char delimiter = pipe ? '|' : tab ? '\t' : ',';
+        final String fixed = "[" + Math.max(length, 0) + delimiter + "]";
+        if (!matches(source, open, close + 1, fixed)) {
+            edits.add(new TextEdit(open, close + 1 - open, fixed), this);
+        }
+    }
 
-        final String fixed = "[" + length + delimiter + "]";
-        return source.substring(0, actualStart) + fixed.replaceAll("\\s+", "") + source.substring(actualEnd + 1);
+    @Override
+    public IssueKind kind() {
+        return IssueKind.ARRAY_HEADER;
     }
 
     @Override
@@ -81,35 +122,29 @@ final class ArrayHeaderIssue implements SyntaxIssue {
         return token.getStartIndex();
     }
 
-    /**
-     * Extracts the length component from the array header content.
-     *
-     * @param content the raw content inside the brackets
-     * @return the extracted length, or 0 if not found
-     */
-    private int extractLength(final String content) {
-        for (final String part : content.split("[,|\\t ]")) {
-            if (!part.isEmpty() && part.chars().allMatch(Character::isDigit)) {
-                return Integer.parseInt(part);
-            }
-        }
-        return 0;
+    @Override
+    public int getLine() {
+        return token.getLine();
     }
 
-    /**
-     * Extracts the delimiter character from the array header content.
-     * Defaults to ',' if no recognized delimiter is found.
-     *
-     * @param content the raw content inside the brackets
-     * @return the extracted delimiter character
-     */
-    private char extractDelimiter(final String content) {
-        if (content.contains("|")) {
-            return '|';
+    @Override
+    public int getColumn() {
+        return token.getCharPositionInLine();
+    }
+
+    private static boolean isLineBreak(final char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    private static boolean matches(final CharSequence source, final int from, final int to, final String text) {
+        if (to - from != text.length()) {
+            return false;
         }
-        if (content.contains("\t")) {
-            return '\t';
+        for (int i = 0; i < text.length(); i++) {
+            if (source.charAt(from + i) != text.charAt(i)) {
+                return false;
+            }
         }
-        return ',';
+        return true;
     }
 }
@@ -0,0 +1,242 @@
+package de.papenhagen.toonrepair;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+/**
+ * Chooses between alternative repairs of the same error by trying them out.
+ * Every candidate is applied to a window made of the line of the error and the next {@value #LOOKAHEAD_LINES}
+ * lines, the window is re-parsed and the candidate leaving the fewest syntax errors wins. Ties go to the
+ * candidate {@link SyntaxIssue#from} chose, so ranking only changes a repair when an alternative is better.
+ * The candidates of all errors of a round are scored concurrently on the common fork/join pool, each worker
+ * with its own lexer and parser; a repair already running on a fork/join worker, e.g. of
+ * {@link ToonRepair#parseParallel(String)}, scores them on its own thread instead of forking into the same pool.
+ * The windows are lexed like the document, by the generated or the hand-written lexer, and every candidate checks
+ * the time budget of the repair before it is scored.
+ */
+final class CandidateRanker {
+
+    /**
+     * Number of lines after the line of an error that a candidate is scored on.
+     */
+    static final int LOOKAHEAD_LINES = 2;
+
+    private static final ThreadLocal<WindowParser> PARSERS = ThreadLocal.withInitial(WindowParser::new);
+
+    private final ToonDfaCache dfaCache;
+    private final boolean handWrittenLexer;
+    private long started;
+    private long budgetNanos = Long.MAX_VALUE;
+
+    /**
+     * Creates a new CandidateRanker.
+     *
+     * @param dfaCache         the DFA cache the scoring parsers predict with
+     * @param handWrittenLexer whether the windows are lexed by the {@link FastToonLexer}
+     */
+    CandidateRanker(final ToonDfaCache dfaCache, final boolean handWrittenLexer) {
+        this.dfaCache = dfaCache;
+        this.handWrittenLexer = handWrittenLexer;
+    }
+
+    /**
+     * Sets the deadline checked before every candidate is scored.
+     *
+     * @param started     the {@link System#nanoTime()} the budget started at
+     * @param budgetNanos the budget in nanoseconds, {@link Long#MAX_VALUE} for none
+     */
+    void setDeadline(final long started, final long budgetNanos) {
+        this.started = started;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Picks the best repair for every error.
+     *
+     * @param source     the source the errors were found in
+     * @param chosen     the issue {@link SyntaxIssue#from} created for every error
+     * @param candidates the alternatives for every error, in the order of {@code chosen}
+     * @return the best issue for every error, in the order of {@code chosen}
+     * @throws DeadlineExceededException if the time budget is used up before all candidates are scored
+     */
+    List<SyntaxIssue> rank(final CharSequence source, final List<SyntaxIssue> chosen,
+                           final List<List<SyntaxIssue>> candidates) {
+        // flatten to (error, candidate) pairs, the chosen issue of each error first
+        final List<SyntaxIssue> all = new ArrayList<>();
+        final int[] firstOfError = new int[chosen.size() + 1];
+        for (int i = 0; i < chosen.size(); i++) {
+            firstOfError[i] = all.size();
+            all.add(chosen.get(i));
+            all.addAll(candidates.get(i));
+        }
+        firstOfError[chosen.size()] = all.size();
+        final boolean[] isChosen = new boolean[all.size()];
+        for (int i = 0; i < chosen.size(); i++) {
+            isChosen[firstOfError[i]] = true;
+        }
+
+        IntStream scores = IntStream.range(0, all.size());
+        if (!ForkJoinTask.inForkJoinPool()) {
+            scores = scores.parallel();
+        }
+        final int[] errors = scores.map(i -> score(source, all.get(i), isChosen[i])).toArray();
+
+        final List<SyntaxIssue> best = new ArrayList<>(chosen.size());
+        for (int i = 0; i < chosen.size(); i++) {
+            int winner = firstOfError[i];
+            for (int j = winner + 1; j < firstOfError[i + 1]; j++) {
+                if (errors[j] < errors[winner]) {
+                    winner = j;
+                }
+            }
+            best.add(all.get(winner));
+        }
+        return best;
+    }
+
+    /**
+     * Counts the syntax errors left in the window around the issue after applying its repair.
+     * An alternative that does nothing or reaches out of the window never wins; the chosen issue is kept if it
+     * reaches out of the window, as it cannot be compared then.
+     *
+     * @param source the source the error was found in
+     * @param issue  the candidate repair
+     * @param chosen whether the candidate is the issue {@link SyntaxIssue#from} created
+     * @return the number of errors
+     */
+    private int score(final CharSequence source, final SyntaxIssue issue, final boolean chosen) {
+        if (budgetNanos != Long.MAX_VALUE && System.nanoTime() - started >= budgetNanos) {
+            throw new DeadlineExceededException();
+        }
+        final int at = Math.min(Math.max(issue.getStartIndex(), 0), source.length());
+        int windowStart = at;
+        while (windowStart > 0 && source.charAt(windowStart - 1) != '\n') {
+            windowStart--;
+        }
+        int windowEnd = at;
+        for (int line = 0; line <= LOOKAHEAD_LINES && windowEnd < source.length(); line++) {
+            while (windowEnd < source.length() && source.charAt(windowEnd++) != '\n') {
+                // up to and including the line break
+            }
+        }
+        final Window window = new Window(source, windowStart, windowEnd);
+
+        final EditBuffer edits = new EditBuffer();
+        issue.emit(window, edits);
+        if (edits.isEmpty() && !chosen) {
+            return Integer.MAX_VALUE;
+        }
+        final EditBuffer local = new EditBuffer();
+        for (final TextEdit edit : edits.edits()) {
+            if (edit.offset() < windowStart || edit.end() > windowEnd) {
+                return chosen ? -1 : Integer.MAX_VALUE;
+            }
+            local.add(new TextEdit(edit.offset() - windowStart, edit.length(), edit.replacement()));
+        }
+        return PARSERS.get().errors(local.applyTo(source.subSequence(windowStart, windowEnd).toString()), dfaCache,
+                handWrittenLexer);
+    }
+
+    /**
+     * The lines of a window at their offsets in the source, so that an issue's token positions stay valid.
+     * The window ends the text, and everything before it reads as line breaks; the repairs only look at the
+     * line of their token, which starts the window, so they see the same text as in the whole source.
+     *
+     * @param source the source the window is cut from
+     * @param start  the offset of the first line of the window
+     * @param end    the offset after the last line of the window
+     */
+    private record Window(CharSequence source, int start, int end) implements CharSequence {
+
+        @Override
+        public int length() {
+            return end;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            if (index >= end) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return index < start ? '\n' : source.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int from, final int to) {
+            final StringBuilder text = new StringBuilder(to - from);
+            for (int i = from; i < to; i++) {
+                text.append(charAt(i));
+            }
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, end).toString();
+        }
+    }
+
+    /**
+     * The lexers and the parser that count the syntax errors of a window, confined to one thread.
+     */
+    private static final class WindowParser extends BaseErrorListener {
+
+        private final ToonLexer lexer = new ToonLexer(null);
+        private final FastToonLexer fastLexer = new FastToonLexer("");
+        private final FastToonTokenSource fastTokens = fastLexer.tokenSource();
+        private final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        private final ToonParser parser = new ToonParser(tokens);
+        private Object boundGeneration;
+        private int errors;
+
+        private WindowParser() {
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(this);
+            parser.removeErrorListeners();
+            parser.addErrorListener(this);
+            parser.setBuildParseTree(false);
+        }
+
+        private int errors(final String window, final ToonDfaCache dfaCache, final boolean handWrittenLexer) {
+            final Object generation = dfaCache.generation();
+            if (generation != boundGeneration) {
+                dfaCache.bind(lexer);
+                dfaCache.bind(parser);
+                boundGeneration = generation;
+            }
+            final int found = parse(window, handWrittenLexer);
+            // the parser is kept per thread, so it must not keep the window and its tokens reachable
+            parse("", handWrittenLexer);
+            return found;
+        }
+
+        private int parse(final String text, final boolean handWrittenLexer) {
+            errors = 0;
+            if (handWrittenLexer) {
+                fastTokens.reset(text);
+                tokens.setTokenSource(fastTokens);
+            } else {
+                lexer.setInputStream(CharStreams.fromString(text));
+                tokens.setTokenSource(lexer);
+            }
+            parser.setTokenStream(tokens);
+            parser.toonFile();
+            // the hand-written lexer skips what it cannot read instead of reporting it
+            return handWrittenLexer ? errors + fastLexer.errors() : errors;
+        }
+
+        @Override
+        public void syntaxError(final Recognizer<?, ?> recognizer, final Object offendingSymbol, final int line,
+                                final int charPositionInLine, final String msg, final RecognitionException e) {
+            errors++;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package de.papenhagen.toonrepair;
+
+/**
+ * Thrown by the {@link ToonRepairErrorStrategy} to abort a parse whose time budget is used up.
+ * It carries no stack trace, as it only unwinds the parser back to the {@link ToonRepairer}.
+ */
+final class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new DeadlineExceededException.
+     */
+    DeadlineExceededException() {
+        super("Repair time budget exceeded", null, false, false);
+    }
+}
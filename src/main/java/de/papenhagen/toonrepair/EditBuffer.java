@@ -0,0 +1,187 @@
+
+package de.papenhagen.toonrepair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the {@link TextEdit}s of one repair round and materializes them in a single linear pass.
+ * All edits refer to offsets in the same original source. An edit that overlaps an already accepted edit
+ * is rejected, so the first issue claiming a range wins. Edits emitted by a {@link SyntaxIssue} remember the
+ * issue kind and token position, see {@link #repairEdits(int)}.
+ */
+public final class EditBuffer {
+
+    /**
+     * Accepted edits ordered by offset; at the same offset an insertion sorts before a replacement.
+     */
+    private final TreeMap<Long, Entry> edits = new TreeMap<>();
+    private int delta;
+
+    /**
+     * Adds an edit unless it overlaps an already accepted one.
+     * Adding an edit equal to an accepted one is a no-op.
+     *
+     * @param edit the edit to add
+     * @return {@code true} if the edit is part of the buffer afterwards
+     */
+    public boolean add(final TextEdit edit) {
+        return add(new Entry(edit, null, 0, -1));
+    }
+
+    /**
+     * Adds an edit repairing the given issue unless it overlaps an already accepted one.
+     * The kind and position of the issue are captured right away, so the issue's tokens may be reused afterwards.
+     *
+     * @param edit   the edit to add
+     * @param origin the issue the edit repairs
+     * @return {@code true} if the edit is part of the buffer afterwards
+     */
+    boolean add(final TextEdit edit, final SyntaxIssue origin) {
+        return add(edit, origin.kind(), origin.getLine(), origin.getColumn());
+    }
+
+    /**
+     * Adds an edit repairing an issue of the given kind and position unless it overlaps an already accepted one.
+     *
+     * @param edit   the edit to add
+     * @param kind   the kind of the repaired issue
+     * @param line   the 1-based line of the issue
+     * @param column the 0-based column of the issue, -1 if unknown
+     * @return {@code true} if the edit is part of the buffer afterwards
+     */
+    boolean add(final TextEdit edit, final IssueKind kind, final int line, final int column) {
+        return add(new Entry(edit, kind, line, column));
+    }
+
+    private boolean add(final Entry entry) {
+        final TextEdit edit = entry.edit();
+        final long key = key(edit);
+
+        final Entry same = edits.get(key);
+        if (same != null) {
+            return same.edit().equals(edit);
+        }
+
+        // Accepted edits are disjoint, so only the direct neighbours can overlap
+        final Map.Entry<Long, Entry> lower = edits.lowerEntry(key);
+        if (lower != null && lower.getValue().edit().end() > edit.offset()) {
+            return false;
+        }
+        final Map.Entry<Long, Entry> higher = edits.higherEntry(key);
+        if (higher != null && higher.getValue().edit().offset() < edit.end()) {
+            return false;
+        }
+
+        edits.put(key, entry);
+        delta += edit.replacement().length() - edit.length();
+        return true;
+    }
+
+    /**
+     * Adds all edits of another buffer, shifted by the given offset.
+     *
+     * @param other the buffer whose edits are added
+     * @param shift the offset added to every edit
+     */
+    public void addAll(final EditBuffer other, final int shift) {
+        addAll(other, shift, 0);
+    }
+
+    /**
+     * Adds all edits of another buffer, e.g. one collected for a fragment of the source.
+     *
+     * @param other     the buffer whose edits are added
+     * @param shift     the offset added to every edit
+     * @param lineShift the number of lines added to the line of every edit that has one
+     */
+    public void addAll(final EditBuffer other, final int shift, final int lineShift) {
+        for (final Entry entry : other.edits.values()) {
+            final TextEdit edit = entry.edit();
+            add(new Entry(new TextEdit(edit.offset() + shift, edit.length(), edit.replacement()),
+                    entry.kind(), entry.kind() == null ? 0 : entry.line() + lineShift, entry.column()));
+        }
+    }
+
+    /**
+     * @return {@code true} if no edit has been accepted
+     */
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    /**
+     * @return the number of accepted edits
+     */
+    public int size() {
+        return edits.size();
+    }
+
+    /**
+     * @return the accepted edits in source order
+     */
+    public List<TextEdit> edits() {
+        final List<TextEdit> result = new ArrayList<>(edits.size());
+        for (final Entry entry : edits.values()) {
+            result.add(entry.edit());
+        }
+        return result;
+    }
+
+    /**
+     * Describes the accepted edits for a {@link RepairResult}.
+     * Edits added without an issue have no kind, line 0 and column -1.
+     *
+     * @param attempt the repair attempt the edits belong to
+     * @return the accepted edits in source order
+     */
+    public List<RepairEdit> repairEdits(final int attempt) {
+        final List<RepairEdit> result = new ArrayList<>(edits.size());
+        for (final Entry entry : edits.values()) {
+            final TextEdit edit = entry.edit();
+            result.add(new RepairEdit(attempt, edit.offset(), edit.length(), edit.replacement(), entry.kind(),
+                    entry.line(), entry.column()));
+        }
+        return result;
+    }
+
+    /**
+     * Removes all edits.
+     */
+    public void clear() {
+        edits.clear();
+        delta = 0;
+    }
+
+    /**
+     * Applies all accepted edits to the source in one pass.
+     *
+     * @param source the source the edit offsets refer to
+     * @return the edited source, or {@code source} itself if there is nothing to apply
+     */
+    public String applyTo(final String source) {
+        if (edits.isEmpty()) {
+            return source;
+        }
+        final StringBuilder result = new StringBuilder(source.length() + Math.max(delta, 0));
+        int copied = 0;
+        for (final Entry entry : edits.values()) {
+            final TextEdit edit = entry.edit();
+            result.append(source, copied, edit.offset()).append(edit.replacement());
+            copied = edit.end();
+        }
+        return result.append(source, copied, source.length()).toString();
+    }
+
+    private static long key(final TextEdit edit) {
+        return ((long) edit.offset() << 1) | (edit.isInsert() ? 0 : 1);
+    }
+
+    /**
+     * An accepted edit together with the kind and token position of the issue it repairs.
+     */
+    private record Entry(TextEdit edit, IssueKind kind, int line, int column) {
+    }
+}
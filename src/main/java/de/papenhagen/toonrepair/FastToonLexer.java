@@ -0,0 +1,516 @@
+
+package de.papenhagen.toonrepair;
+
+import org.antlr.v4.runtime.Token;
+
+import java.util.Arrays;
+
+/**
+ * Hand-written lexer for the token set of {@code Toon.g4}.
+ * Works directly on a {@link CharSequence} and stores the tokens in parallel primitive arrays instead of token
+ * objects. It follows the rules of the generated {@link ToonLexer}: the longest match wins, ties go to the rule
+ * defined first, {@code WS_INLINE} is skipped and unrecognized characters are dropped. Leading spaces are
+ * indentation and yield the same zero-width {@code INDENT} and {@code DEDENT} tokens. Offsets and columns count
+ * UTF-16 chars, which equals the code point based offsets of the generated lexer for text in the BMP.
+ * Use {@link #tokenSource()} to feed the tokens to a {@link ToonParser}.
+ */
+public final class FastToonLexer {
+
+    static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Token capacity kept by {@link #release()}; larger arrays only served an unusually large input.
+     */
+    static final int RETAINED_CAPACITY = 4096;
+
+    private CharSequence input = "";
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] stops = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int[] columns = new int[INITIAL_CAPACITY];
+    private int size;
+    private int errors;
+    private int[] indents = new int[16];
+    private int indentDepth;
+
+    /**
+     * Creates a new FastToonLexer for the given input.
+     *
+     * @param input the TOON content to tokenize
+     */
+    public FastToonLexer(final CharSequence input) {
+        reset(input);
+    }
+
+    /**
+     * Tokenizes new input, reusing the token arrays.
+     *
+     * @param input the TOON content to tokenize
+     */
+    public void reset(final CharSequence input) {
+        reset(input, indents, 0);
+    }
+
+    /**
+     * Tokenizes new input that continues inside the indentation levels of earlier input, e.g. the lines after a
+     * table that was read on its own. The tokens start with an {@code INDENT} for every open level and close
+     * them all before {@code EOF}, so the input parses as nested in them.
+     *
+     * @param input  the TOON content to tokenize
+     * @param widths the indentation widths of the open levels, outermost first
+     * @param depth  the number of open levels
+     */
+    void reset(final CharSequence input, final int[] widths, final int depth) {
+        this.input = input;
+        size = 0;
+        errors = 0;
+        if (indents.length < depth) {
+            indents = Arrays.copyOf(widths, depth);
+        } else {
+            System.arraycopy(widths, 0, indents, 0, depth);
+        }
+        for (indentDepth = 0; indentDepth < depth; indentDepth++) {
+            add(ToonLexer.INDENT, 0, -1, 1, 0);
+        }
+        tokenize();
+    }
+
+    /**
+     * Resets the lexer to the empty input and shrinks token arrays grown beyond {@value #RETAINED_CAPACITY} tokens,
+     * so that an idle lexer neither references its last input nor keeps memory sized for it.
+     */
+    void release() {
+        if (types.length > RETAINED_CAPACITY) {
+            types = new int[INITIAL_CAPACITY];
+            starts = new int[INITIAL_CAPACITY];
+            stops = new int[INITIAL_CAPACITY];
+            lines = new int[INITIAL_CAPACITY];
+            columns = new int[INITIAL_CAPACITY];
+        }
+        reset("");
+    }
+
+    /**
+     * @return the number of tokens including the trailing {@code EOF} token
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of unrecognized character sequences that were dropped
+     */
+    public int errors() {
+        return errors;
+    }
+
+    /**
+     * @param index the token index
+     * @return the token type, one of the {@link ToonLexer} constants or {@link Token#EOF}
+     */
+    public int type(final int index) {
+        return types[index];
+    }
+
+    /**
+     * @param index the token index
+     * @return the offset of the first character of the token
+     */
+    public int start(final int index) {
+        return starts[index];
+    }
+
+    /**
+     * @param index the token index
+     * @return the offset of the last character of the token
+     */
+    public int stop(final int index) {
+        return stops[index];
+    }
+
+    /**
+     * @param index the token index
+     * @return the 1-based line of the token
+     */
+    public int line(final int index) {
+        return lines[index];
+    }
+
+    /**
+     * @param index the token index
+     * @return the 0-based column of the token
+     */
+    public int column(final int index) {
+        return columns[index];
+    }
+
+    /**
+     * @param index the token index
+     * @return the token text, {@code <EOF>} for the end of input
+     */
+    public String text(final int index) {
+        if (types[index] == Token.EOF) {
+            return "<EOF>";
+        }
+        return input.subSequence(starts[index], stops[index] + 1).toString();
+    }
+
+    /**
+     * @return the tokenized input
+     */
+    CharSequence input() {
+        return input;
+    }
+
+    /**
+     * Creates a token source that hands the tokens to an ANTLR parser.
+     *
+     * @return a token source positioned at the first token
+     */
+    public FastToonTokenSource tokenSource() {
+        return new FastToonTokenSource(this);
+    }
+
+    private void tokenize() {
+        final int length = input.length();
+        int pos = 0;
+        int line = 1;
+        int lineStart = 0;
+        boolean atLineStart = true;
+
+        while (pos < length) {
+            if (atLineStart) {
+                atLineStart = false;
+                int width = 0;
+                while (pos + width < length && input.charAt(pos + width) == ' ') {
+                    width++;
+                }
+                final char first = pos + width < length ? input.charAt(pos + width) : '\n';
+                if (first != '\t' && first != '\n' && first != '\r' && first != '#') {
+                    // whitespace with a tab is lexed as usual and keeps the current level
+                    pos += width;
+                    indentTo(width, pos, line, pos - lineStart);
+                }
+                continue;
+            }
+            final char c = input.charAt(pos);
+            int type;
+            int tokenLength;
+
+            switch (c) {
+                case '\n' -> {
+                    type = ToonLexer.NEWLINE;
+                    tokenLength = 1;
+                }
+                case '\r' -> {
+                    if (pos + 1 < length && input.charAt(pos + 1) == '\n') {
+                        type = ToonLexer.NEWLINE;
+                        tokenLength = 2;
+                    } else {
+                        // a lone '\r' is a NEWLINE prefix, so the generated lexer drops the next char as well
+                        errors++;
+                        pos = Math.min(pos + 2, length);
+                        continue;
+                    }
+                }
+                case '\\' -> {
+                    errors++;
+                    pos++;
+                    continue;
+                }
+                case ' ', '\t' -> {
+                    final int whitespace = whitespaceLength(pos);
+                    if (c == '\t' && whitespace == 1) {
+                        type = ToonLexer.TAB;
+                        tokenLength = 1;
+                    } else {
+                        pos += whitespace; // WS_INLINE -> skip
+                        continue;
+                    }
+                }
+                case '[' -> {
+                    type = ToonLexer.LBRACK;
+                    tokenLength = 1;
+                }
+                case ']' -> {
+                    type = ToonLexer.RBRACK;
+                    tokenLength = 1;
+                }
+                case ',' -> {
+                    type = ToonLexer.COMMA;
+                    tokenLength = 1;
+                }
+                case '|' -> {
+                    type = ToonLexer.PIPE;
+                    tokenLength = 1;
+                }
+                case '#' -> {
+                    type = ToonLexer.COMMENT;
+                    tokenLength = commentLength(pos);
+                }
+                case ':', ';' -> {
+                    final int cell = cellLength(pos);
+                    type = cell > 1 ? ToonLexer.UNQUOTED_CELL : (c == ':' ? ToonLexer.COLON : ToonLexer.SEMI);
+                    tokenLength = cell;
+                }
+                case '"' -> {
+                    final int quoted = quotedLength(pos);
+                    final int cell = cellLength(pos);
+                    type = quoted >= cell ? ToonLexer.QUOTED_STRING : ToonLexer.UNQUOTED_CELL;
+                    tokenLength = Math.max(quoted, cell);
+                }
+                case '-' -> {
+                    final int number = numberLength(pos);
+                    final int cell = cellLength(pos);
+                    if (cell > number && cell > 1) {
+                        type = ToonLexer.UNQUOTED_CELL;
+                        tokenLength = cell;
+                    } else if (number > 1) {
+                        type = ToonLexer.NUMBER;
+                        tokenLength = number;
+                    } else {
+                        type = ToonLexer.DASH;
+                        tokenLength = 1;
+                    }
+                }
+                default -> {
+                    final int cell = cellLength(pos);
+                    if (isIdentStart(c)) {
+                        final int ident = identLength(pos);
+                        if (cell > ident) {
+                            type = ToonLexer.UNQUOTED_CELL;
+                            tokenLength = cell;
+                        } else {
+                            type = keywordType(pos, ident);
+                            tokenLength = ident;
+                        }
+                    } else if (c >= '0' && c <= '9') {
+                        final int number = numberLength(pos);
+                        type = number >= cell ? ToonLexer.NUMBER : ToonLexer.UNQUOTED_CELL;
+                        tokenLength = Math.max(number, cell);
+                    } else {
+                        type = ToonLexer.UNQUOTED_CELL;
+                        tokenLength = cell;
+                    }
+                }
+            }
+
+            add(type, pos, pos + tokenLength - 1, line, pos - lineStart);
+            pos += tokenLength;
+            if (type == ToonLexer.NEWLINE) {
+                line++;
+                lineStart = pos;
+                atLineStart = true;
+            }
+        }
+        for (; indentDepth > 0; indentDepth--) {
+            add(ToonLexer.DEDENT, length, length - 1, line, length - lineStart);
+        }
+        add(Token.EOF, length, length - 1, line, length - lineStart);
+    }
+
+    /**
+     * Adds the INDENT or DEDENT tokens for a line of the given indentation width, like the generated lexer.
+     */
+    private void indentTo(final int width, final int pos, final int line, final int column) {
+        final int current = indentDepth == 0 ? 0 : indents[indentDepth - 1];
+        if (width > current) {
+            if (indentDepth == indents.length) {
+                indents = Arrays.copyOf(indents, indentDepth * 2);
+            }
+            indents[indentDepth++] = width;
+            add(ToonLexer.INDENT, pos, pos - 1, line, column);
+            return;
+        }
+        while (indentDepth > 0 && indents[indentDepth - 1] > width) {
+            indentDepth--;
+            add(ToonLexer.DEDENT, pos, pos - 1, line, column);
+        }
+        final int outer = indentDepth == 0 ? 0 : indents[indentDepth - 1];
+        if (width > outer) {
+            // inconsistent dedent: stay at the level just closed, now with this width
+            size--;
+            indents[indentDepth++] = width;
+        }
+    }
+
+    private void add(final int type, final int start, final int stop, final int line, final int column) {
+        if (size == types.length) {
+            final int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            stops = Arrays.copyOf(stops, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        types[size] = type;
+        starts[size] = start;
+        stops[size] = stop;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    /**
+     * BOOL and NULL win over IDENT when both match the same text.
+     */
+    private int keywordType(final int pos, final int length) {
+        if (length == 4 && matches(pos, "true") || length == 5 && matches(pos, "false")) {
+            return ToonLexer.BOOL;
+        }
+        if (length == 4 && matches(pos, "null")) {
+            return ToonLexer.NULL;
+        }
+        return ToonLexer.IDENT;
+    }
+
+    private boolean matches(final int pos, final String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (input.charAt(pos + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * UNQUOTED_CELL : ~[\r\n[\]\\,| \t]+
+     */
+    private int cellLength(final int pos) {
+        int i = pos;
+        while (i < input.length() && isCellChar(input.charAt(i))) {
+            i++;
+        }
+        return i - pos;
+    }
+
+    /**
+     * IDENT : [A-Za-z_] [A-Za-z0-9_]*
+     */
+    private int identLength(final int pos) {
+        int i = pos + 1;
+        while (i < input.length() && (isIdentStart(input.charAt(i)) || isDigit(input.charAt(i)))) {
+            i++;
+        }
+        return i - pos;
+    }
+
+    /**
+     * NUMBER : '-'? INT ('.' [0-9]+)? EXP? with the longest prefix that forms a complete number.
+     *
+     * @return the length of the number, 0 if there is none
+     */
+    private int numberLength(final int pos) {
+        final int length = input.length();
+        int i = pos;
+        if (input.charAt(i) == '-') {
+            i++;
+        }
+        if (i >= length || !isDigit(input.charAt(i))) {
+            return 0;
+        }
+        if (input.charAt(i++) != '0') {
+            while (i < length && isDigit(input.charAt(i))) {
+                i++;
+            }
+        }
+        if (i + 1 < length && input.charAt(i) == '.' && isDigit(input.charAt(i + 1))) {
+            i += 2;
+            while (i < length && isDigit(input.charAt(i))) {
+                i++;
+            }
+        }
+        if (i < length && (input.charAt(i) == 'e' || input.charAt(i) == 'E')) {
+            int exponent = i + 1;
+            if (exponent < length && (input.charAt(exponent) == '+' || input.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < length && isDigit(input.charAt(exponent))) {
+                while (exponent < length && isDigit(input.charAt(exponent))) {
+                    exponent++;
+                }
+                i = exponent;
+            }
+        }
+        return i - pos;
+    }
+
+    /**
+     * QUOTED_STRING : '"' ( ESC_SEQ | ~["\\\r\n] )* '"'
+     *
+     * @return the length of the quoted string, 0 if it is not terminated properly
+     */
+    private int quotedLength(final int pos) {
+        final int length = input.length();
+        int i = pos + 1;
+        while (i < length) {
+            final char c = input.charAt(i);
+            if (c == '"') {
+                return i + 1 - pos;
+            }
+            if (c == '\r' || c == '\n') {
+                return 0;
+            }
+            if (c == '\\') {
+                if (i + 1 >= length) {
+                    return 0;
+                }
+                final char escaped = input.charAt(i + 1);
+                if ("'\"\\/bfnrt".indexOf(escaped) >= 0) {
+                    i += 2;
+                    continue;
+                }
+                if (escaped != 'u' || i + 5 >= length || !isHex(i + 2) || !isHex(i + 3) || !isHex(i + 4) || !isHex(i + 5)) {
+                    return 0;
+                }
+                i += 6;
+                continue;
+            }
+            i++;
+        }
+        return 0;
+    }
+
+    /**
+     * COMMENT : '#' ~[\r\n]*
+     */
+    private int commentLength(final int pos) {
+        int i = pos + 1;
+        while (i < input.length() && input.charAt(i) != '\r' && input.charAt(i) != '\n') {
+            i++;
+        }
+        return i - pos;
+    }
+
+    /**
+     * WS_INLINE : [ \t]+
+     */
+    private int whitespaceLength(final int pos) {
+        int i = pos + 1;
+        while (i < input.length() && (input.charAt(i) == ' ' || input.charAt(i) == '\t')) {
+            i++;
+        }
+        return i - pos;
+    }
+
+    private boolean isHex(final int pos) {
+        final char c = input.charAt(pos);
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isCellChar(final char c) {
+        return switch (c) {
+            case '\r', '\n', '[', ']', '\\', ',', '|', ' ', '\t' -> false;
+            default -> true;
+        };
+    }
+
+    private static boolean isIdentStart(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,179 @@
+
+package de.papenhagen.toonrepair;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+
+import java.util.Arrays;
+
+/**
+ * Adapts a {@link FastToonLexer} to ANTLR's {@link TokenSource}, so that {@link ToonParser} and
+ * {@link ToonRepairErrorStrategy} work unchanged on top of it.
+ * The handed out tokens are flyweights reading from the lexer's arrays. There is one per token index, created on
+ * first use and handed out again for every later input, so once the pool has grown to the size of the inputs,
+ * tokenizing allocates no per-token objects. A token reads the input the lexer was last
+ * {@linkplain FastToonLexer#reset(CharSequence) reset} to, so a lexer and its token source serve one token stream
+ * at a time; {@link ToonRepairer} keeps one pair for validation and one for repair.
+ */
+public final class FastToonTokenSource implements TokenSource {
+
+    private final FastToonLexer lexer;
+    private FastToken[] pool = new FastToken[FastToonLexer.INITIAL_CAPACITY];
+    private int next;
+
+    /**
+     * Creates a new FastToonTokenSource.
+     *
+     * @param lexer the lexer holding the tokens
+     */
+    FastToonTokenSource(final FastToonLexer lexer) {
+        this.lexer = lexer;
+    }
+
+    /**
+     * Starts handing out the tokens from the beginning again, e.g. after the lexer was reset.
+     */
+    public void rewind() {
+        next = 0;
+    }
+
+    /**
+     * Tokenizes new input with the lexer and starts handing out its tokens.
+     *
+     * @param input the TOON content to tokenize
+     */
+    void reset(final CharSequence input) {
+        lexer.reset(input);
+        next = 0;
+    }
+
+    /**
+     * Resets the lexer to the empty input and lets it shrink its token arrays, see {@link FastToonLexer#release()}.
+     */
+    void release() {
+        lexer.release();
+        if (pool.length > FastToonLexer.RETAINED_CAPACITY) {
+            pool = new FastToken[FastToonLexer.INITIAL_CAPACITY];
+        }
+        next = 0;
+    }
+
+    @Override
+    public Token nextToken() {
+        // keep returning EOF once the end is reached
+        final int index = Math.min(next, lexer.size() - 1);
+        next = index + 1;
+        if (index == pool.length) {
+            pool = Arrays.copyOf(pool, index * 2);
+        }
+        FastToken token = pool[index];
+        if (token == null) {
+            token = new FastToken(index);
+            pool[index] = token;
+        }
+        return token;
+    }
+
+    @Override
+    public int getLine() {
+        return lexer.line(Math.min(next, lexer.size() - 1));
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return lexer.column(Math.min(next, lexer.size() - 1));
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return null;
+    }
+
+    @Override
+    public String getSourceName() {
+        return IntStream.UNKNOWN_SOURCE_NAME;
+    }
+
+    @Override
+    public void setTokenFactory(final TokenFactory<?> factory) {
+        // tokens are views on the lexer arrays and not created by a factory
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        // used by the error strategy to conjure up missing tokens
+        return CommonTokenFactory.DEFAULT;
+    }
+
+    /**
+     * A token that is nothing but an index into the lexer arrays.
+     */
+    private final class FastToken implements Token {
+
+        private final int index;
+
+        private FastToken(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getText() {
+            return lexer.text(index);
+        }
+
+        @Override
+        public int getType() {
+            return lexer.type(index);
+        }
+
+        @Override
+        public int getLine() {
+            return lexer.line(index);
+        }
+
+        @Override
+        public int getCharPositionInLine() {
+            return lexer.column(index);
+        }
+
+        @Override
+        public int getChannel() {
+            return DEFAULT_CHANNEL;
+        }
+
+        @Override
+        public int getTokenIndex() {
+            return index;
+        }
+
+        @Override
+        public int getStartIndex() {
+            return lexer.start(index);
+        }
+
+        @Override
+        public int getStopIndex() {
+            return lexer.stop(index);
+        }
+
+        @Override
+        public TokenSource getTokenSource() {
+            return FastToonTokenSource.this;
+        }
+
+        @Override
+        public CharStream getInputStream() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "[@" + index + "," + getStartIndex() + ":" + getStopIndex() + "='" + getText() + "',<" + getType()
+                    + ">," + getLine() + ":" + getCharPositionInLine() + "]";
+        }
+    }
+}
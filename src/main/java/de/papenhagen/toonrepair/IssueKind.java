@@ -0,0 +1,32 @@
+
+package de.papenhagen.toonrepair;
+
+/**
+ * The kinds of {@link SyntaxIssue}s the repair pipeline distinguishes.
+ */
+public enum IssueKind {
+    /**
+     * A colon is missing after a key, see {@code MissingColonIssue}.
+     */
+    MISSING_COLON,
+    /**
+     * An array header needs to be normalized, see {@code ArrayHeaderIssue}.
+     */
+    ARRAY_HEADER,
+    /**
+     * An extraneous token is removed, see {@code UnexpectedTokenIssue}.
+     */
+    UNEXPECTED_TOKEN,
+    /**
+     * A line break is inserted before a token that should start a new line, see {@code MissingNewlineIssue}.
+     */
+    MISSING_NEWLINE,
+    /**
+     * A quoted string is closed at the end of its line, see {@code UnclosedQuoteIssue}.
+     */
+    UNCLOSED_QUOTE,
+    /**
+     * An error was found but there is no repair for it, see {@code NoOpIssue}.
+     */
+    NO_OP
+}
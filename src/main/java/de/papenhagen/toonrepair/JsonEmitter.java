@@ -0,0 +1,483 @@
+package de.papenhagen.toonrepair;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the events of a {@link ToonReader} as JSON, without building the document in memory.
+ * The document is an object of its fields unless its first line is a header, list item or row, which makes it an
+ * array; a document of a single primitive or single-cell row is that value and an empty document is {@code {}}.
+ * A field without a value opens a member. An indented block right after it is the value of the member and is
+ * converted like a document of its own, so nested fields become a nested object. Without a block, a header or list
+ * item right after the field makes the member an array, otherwise it is an empty object. Other blocks, e.g. rows
+ * indented under their header, do not nest in the JSON. The rows under a header become objects keyed by the header
+ * fields; rows without a header become arrays of cells. Headers and list items without such a field continue the
+ * array of the previous member, or open a member with an empty name. Unquoted cells and keys become strings, other
+ * values are copied as written.
+ * The cells of a table read by a {@link ToonTableReader} are typed by the reader instead, see
+ * {@link #table(ToonTable, boolean)}.
+ * Write failures are thrown as {@link UncheckedIOException}; the emitter only reads repaired input, so a syntax
+ * error, whose line would be lost, is thrown as {@link IllegalArgumentException}.
+ */
+final class JsonEmitter implements ToonHandler {
+
+    private final Writer out;
+    private char[] closers = new char[8];
+    private boolean[] hasElements = new boolean[8];
+    private int depth;
+    // depth of the document or nested block being written, whose value is not opened while depth equals it
+    private int base;
+    // base of the enclosing value for every open block, -1 for a block that does not nest in the JSON
+    private int[] blocks = new int[8];
+    private int blockDepth;
+    private int arrayDepth = -1;
+    private int tableDepth = -1;
+    private String[] fields;
+    private String pendingKey;
+    private String pendingPrimitive;
+    private boolean pendingCell;
+    private boolean inItem;
+    private boolean itemWritten;
+    private boolean itemObject;
+
+    /**
+     * Creates a new JsonEmitter.
+     *
+     * @param out the destination of the JSON
+     */
+    JsonEmitter(final Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void endDocument() {
+        endValue();
+    }
+
+    @Override
+    public void startBlock() {
+        if (blockDepth == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockDepth * 2);
+        }
+        if (pendingKey == null) {
+            blocks[blockDepth++] = -1;
+            return;
+        }
+        name(pendingKey);
+        pendingKey = null;
+        blocks[blockDepth++] = base;
+        base = depth;
+    }
+
+    @Override
+    public void endBlock() {
+        final int enclosing = blocks[--blockDepth];
+        if (enclosing >= 0) {
+            endValue();
+            base = enclosing;
+            // the member of the block was opened after the member arrays of the enclosing value were closed
+            arrayDepth = -1;
+        }
+    }
+
+    @Override
+    public void objectField(final String key, final String value) {
+        if (inItem) {
+            if (!itemWritten) {
+                beginElement();
+                open('{');
+                itemWritten = true;
+                itemObject = true;
+            }
+            member(key, value);
+            return;
+        }
+        closeTable();
+        if (depth == base && pendingPrimitive == null) {
+            open('{');
+        }
+        if (depth == base || closers[base] == ']') {
+            enterArray();
+            beginElement();
+            open('{');
+            member(key, value);
+            close();
+            return;
+        }
+        closeMemberArray();
+        flushPendingKey();
+        if (value == null) {
+            pendingKey = key;
+        } else {
+            member(key, value);
+        }
+    }
+
+    @Override
+    public void arrayHeader(final int length, final char delimiter, final List<String> fields) {
+        closeTable();
+        if (inItem) {
+            beginElement();
+            open('[');
+            tableDepth = depth - 1;
+            itemWritten = true;
+        } else {
+            enterArray();
+        }
+        this.fields = fields.toArray(new String[0]);
+    }
+
+    @Override
+    public void row(final List<String> cells) {
+        if (inItem) {
+            beginElement();
+            cells(cells);
+            itemWritten = true;
+            return;
+        }
+        if (tableDepth < 0) {
+            if (fields == null && depth == base && pendingPrimitive == null && cells.size() == 1) {
+                // a single cell may be all there is, like a single primitive
+                pendingPrimitive = cells.getFirst();
+                pendingCell = true;
+                return;
+            }
+            enterArray();
+        }
+        beginElement();
+        if (fields == null) {
+            cells(cells);
+            return;
+        }
+        open('{');
+        for (int i = 0; i < Math.min(fields.length, cells.size()); i++) {
+            name(fields[i]);
+            cell(cells.get(i));
+        }
+        close();
+    }
+
+    @Override
+    public void primitive(final String value) {
+        if (inItem) {
+            beginElement();
+            value(value);
+            itemWritten = true;
+            return;
+        }
+        closeTable();
+        if (depth == base && pendingPrimitive == null) {
+            pendingPrimitive = value;
+            return;
+        }
+        if (pendingKey != null) {
+            name(pendingKey);
+            pendingKey = null;
+            value(value);
+            return;
+        }
+        enterArray();
+        beginElement();
+        value(value);
+    }
+
+    /**
+     * Writes a table like its header and rows, with numbers, booleans and {@code null} as such and only string
+     * cells as strings.
+     *
+     * @param table    the table
+     * @param listItem whether the header is the content of a list item
+     */
+    void table(final ToonTable table, final boolean listItem) {
+        if (listItem) {
+            startListItem();
+        }
+        arrayHeader(table.declaredLength(), table.delimiter(), table.fields());
+        if (listItem) {
+            endListItem();
+        }
+        final List<String> names = table.fields();
+        for (int row = 0; row < table.rowCount(); row++) {
+            beginElement();
+            open('{');
+            for (int c = 0; c < names.size(); c++) {
+                beginElement();
+                string(names.get(c));
+                write(':');
+                typed(table.column(c), row);
+            }
+            close();
+        }
+    }
+
+    @Override
+    public void syntaxError(final int line, final int column) {
+        throw new IllegalArgumentException("The repaired TOON still has a syntax error at " + line + ":" + column);
+    }
+
+    @Override
+    public void startListItem() {
+        closeTable();
+        enterArray();
+        inItem = true;
+        itemWritten = false;
+        itemObject = false;
+    }
+
+    @Override
+    public void endListItem() {
+        if (itemObject) {
+            close();
+        } else if (!itemWritten) {
+            beginElement();
+            write("{}");
+        }
+        inItem = false;
+    }
+
+    /**
+     * Ends the document or the value of a nested block: writes a lone value or {@code {}} if nothing opened it,
+     * otherwise closes what is open inside it.
+     */
+    private void endValue() {
+        closeTable();
+        if (depth == base) {
+            if (pendingPrimitive != null) {
+                pendingValue();
+            } else {
+                write("{}");
+            }
+            return;
+        }
+        flushPendingKey();
+        while (depth > base) {
+            close();
+        }
+    }
+
+    /**
+     * Makes sure an array is open for list items and rows: the array of the document or block, the array of the
+     * current member, or a new member array.
+     */
+    private void enterArray() {
+        if (depth == base) {
+            open('[');
+            arrayDepth = base;
+            if (pendingPrimitive != null) {
+                beginElement();
+                pendingValue();
+            }
+        } else if (arrayDepth < 0) {
+            name(pendingKey == null ? "\"\"" : pendingKey);
+            pendingKey = null;
+            open('[');
+            arrayDepth = depth - 1;
+        }
+    }
+
+    private void closeMemberArray() {
+        if (arrayDepth > base) {
+            while (depth > arrayDepth) {
+                close();
+            }
+            arrayDepth = -1;
+        }
+    }
+
+    private void closeTable() {
+        if (tableDepth >= 0) {
+            while (depth > tableDepth) {
+                close();
+            }
+            tableDepth = -1;
+        }
+        fields = null;
+    }
+
+    private void flushPendingKey() {
+        if (pendingKey != null) {
+            name(pendingKey);
+            write("{}");
+            pendingKey = null;
+        }
+    }
+
+    private void pendingValue() {
+        if (pendingCell) {
+            cell(pendingPrimitive);
+        } else {
+            value(pendingPrimitive);
+        }
+        pendingPrimitive = null;
+        pendingCell = false;
+    }
+
+    private void open(final char bracket) {
+        if (depth == closers.length) {
+            closers = Arrays.copyOf(closers, depth * 2);
+            hasElements = Arrays.copyOf(hasElements, depth * 2);
+        }
+        write(bracket);
+        closers[depth] = bracket == '{' ? '}' : ']';
+        hasElements[depth] = false;
+        depth++;
+    }
+
+    private void close() {
+        depth--;
+        write(closers[depth]);
+    }
+
+    private void beginElement() {
+        if (hasElements[depth - 1]) {
+            write(',');
+        }
+        hasElements[depth - 1] = true;
+    }
+
+    private void member(final String key, final String value) {
+        name(key);
+        if (value == null) {
+            write("{}");
+        } else {
+            value(value);
+        }
+    }
+
+    private void name(final String key) {
+        beginElement();
+        cell(key);
+        write(':');
+    }
+
+    private void cells(final List<String> cells) {
+        if (cells.size() == 1) {
+            cell(cells.getFirst());
+            return;
+        }
+        open('[');
+        for (final String cell : cells) {
+            beginElement();
+            cell(cell);
+        }
+        close();
+    }
+
+    /**
+     * Writes a value token: numbers, booleans and null as they are, everything else as a string.
+     */
+    private void value(final String value) {
+        final char first = value.charAt(0);
+        if (first == '-' || (first >= '0' && first <= '9')
+                || value.equals("true") || value.equals("false") || value.equals("null")) {
+            write(value);
+        } else {
+            cell(value);
+        }
+    }
+
+    /**
+     * Writes a cell, key or field token as a string.
+     */
+    private void cell(final String text) {
+        if (text.length() >= 2 && text.charAt(0) == '"' && text.charAt(text.length() - 1) == '"') {
+            quoted(text);
+        } else {
+            string(text);
+        }
+    }
+
+    /**
+     * Writes a table cell as the type it was read as; a decimal too large for a double stays a string.
+     */
+    private void typed(final ToonTable.Column column, final int row) {
+        switch (column.type(row)) {
+            case NULL -> write("null");
+            case BOOL -> write(column.getBoolean(row) ? "true" : "false");
+            case LONG -> write(Long.toString(column.getLong(row)));
+            case DOUBLE -> {
+                final double value = column.getDouble(row);
+                if (Double.isFinite(value)) {
+                    write(Double.toString(value));
+                } else {
+                    string(Double.toString(value));
+                }
+            }
+            case STRING -> string(column.getString(row));
+        }
+    }
+
+    /**
+     * Writes unescaped text as a string.
+     */
+    private void string(final String text) {
+        write('"');
+        escaped(text, 0, text.length());
+        write('"');
+    }
+
+    /**
+     * Copies a quoted TOON string; its escapes are those of JSON plus {@code \'}.
+     */
+    private void quoted(final String text) {
+        write('"');
+        final int end = text.length() - 1;
+        int from = 1;
+        for (int i = 1; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                if (text.charAt(i + 1) == '\'') {
+                    write(text, from, i);
+                    from = i + 1;
+                }
+                i++;
+            } else if (c < ' ') {
+                write(text, from, i);
+                write(controlEscape(c));
+                from = i + 1;
+            }
+        }
+        write(text, from, end);
+        write('"');
+    }
+
+    private void escaped(final String text, final int from, final int to) {
+        int start = from;
+        for (int i = from; i < to; i++) {
+            final char c = text.charAt(i);
+            if (c == '"' || c == '\\' || c < ' ') {
+                write(text, start, i);
+                write(c == '"' || c == '\\' ? "\\" + c : controlEscape(c));
+                start = i + 1;
+            }
+        }
+        write(text, start, to);
+    }
+
+    private static String controlEscape(final char c) {
+        return String.format("\\u%04x", (int) c);
+    }
+
+    private void write(final char c) {
+        try {
+            out.write(c);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void write(final String text) {
+        write(text, 0, text.length());
+    }
+
+    private void write(final String text, final int from, final int to) {
+        try {
+            out.write(text, from, to - from);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
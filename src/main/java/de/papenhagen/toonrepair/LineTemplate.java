@@ -0,0 +1,89 @@
+package de.papenhagen.toonrepair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The edits repairing one line, expressed relative to the token boundaries of the line instead of offsets.
+ * Lines of the same shape have the same number of boundaries in the same order, so a template taken from one
+ * line repairs every other line of its shape by looking up the boundaries there.
+ * The boundaries of a line are its start, the start and end of each token the parser sees, and its end.
+ * Only repairs that depend on the boundaries alone make a template: inserting constant text at a boundary and
+ * deleting whole tokens. Repairs that read the token text, like normalizing an array header or closing a quote,
+ * differ between lines of the same shape.
+ *
+ * @param steps  the edits of the line in source order
+ * @param issues the kinds of the issues the edits repair
+ */
+record LineTemplate(List<Step> steps, List<IssueKind> issues) {
+
+    /**
+     * Turns the edits of a line into a template.
+     *
+     * @param edits      the edits of the line, with offsets relative to the start of the line
+     * @param boundaries the boundaries of the line
+     * @param count      the number of boundaries
+     * @param issues     the kinds of the issues the edits repair
+     * @return the template, {@code null} if an edit starts or ends between two boundaries or the repair of an
+     * issue depends on the token text
+     */
+    static LineTemplate of(final List<RepairEdit> edits, final int[] boundaries, final int count,
+                           final List<IssueKind> issues) {
+        for (final IssueKind kind : issues) {
+            if (kind == IssueKind.ARRAY_HEADER || kind == IssueKind.UNCLOSED_QUOTE) {
+                return null;
+            }
+        }
+        final List<Step> steps = new ArrayList<>(edits.size());
+        for (final RepairEdit edit : edits) {
+            final int from = indexOf(boundaries, count, edit.offset());
+            final int to = indexOf(boundaries, count, edit.offset() + edit.length());
+            if (from < 0 || to < 0 || from != to && !edit.replacement().isEmpty()) {
+                return null;
+            }
+            steps.add(new Step(from, to, edit.replacement(), edit.kind(), indexOf(boundaries, count, edit.column())));
+        }
+        return new LineTemplate(List.copyOf(steps), List.copyOf(issues));
+    }
+
+    /**
+     * Adds the edits of this template for another line of the same shape.
+     *
+     * @param target     the buffer receiving the edits
+     * @param lineStart  the offset of the line in the text of the buffer
+     * @param line       the 1-based number of the line
+     * @param boundaries the boundaries of the line
+     */
+    void applyTo(final EditBuffer target, final int lineStart, final int line, final int[] boundaries) {
+        for (final Step step : steps) {
+            final int offset = boundaries[step.from()];
+            final TextEdit edit = new TextEdit(lineStart + offset, boundaries[step.to()] - offset, step.replacement());
+            if (step.kind() == null) {
+                target.add(edit);
+            } else {
+                target.add(edit, step.kind(), line, step.column() < 0 ? -1 : boundaries[step.column()]);
+            }
+        }
+    }
+
+    private static int indexOf(final int[] boundaries, final int count, final int offset) {
+        for (int i = 0; i < count; i++) {
+            if (boundaries[i] == offset) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One edit of a template.
+     *
+     * @param from        the boundary the replaced range starts at
+     * @param to          the boundary the replaced range ends at
+     * @param replacement the text inserted instead
+     * @param kind        the kind of the repaired issue, {@code null} if the edit was not made by an issue
+     * @param column      the boundary at the column of the issue, -1 if the column is not at a boundary
+     */
+    record Step(int from, int to, String replacement, IssueKind kind, int column) {
+    }
+}
@@ -0,0 +1,156 @@
+package de.papenhagen.toonrepair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Repairs a TOON file through a memory mapping of its bytes.
+ * The file is cut into the same block-aligned chunks as {@link ToonChunkReader}, but chunks are views on the
+ * mapped bytes instead of decoded strings. A chunk is validated by lexing the bytes directly; valid chunks are
+ * copied to the output with {@link FileChannel#transferTo} and only broken chunks are materialized and repaired.
+ * All structural characters of TOON are ASCII, so every byte is read as one Latin-1 character: multi-byte UTF-8
+ * sequences become runs of non-ASCII characters that lex like the original characters, and the ASCII repairs
+ * leave them untouched when the repaired chunk is encoded back.
+ */
+final class MappedToonFile {
+
+    /**
+     * Size of the mapped regions; a single mapping cannot exceed 2 GB.
+     */
+    private static final int REGION_BITS = 30;
+    private static final long REGION_SIZE = 1L << REGION_BITS;
+
+    private final MappedByteBuffer[] regions;
+    private final long size;
+
+    private MappedToonFile(final FileChannel channel) throws IOException {
+        this.size = channel.size();
+        this.regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) >>> REGION_BITS)];
+        for (int i = 0; i < regions.length; i++) {
+            final long offset = (long) i << REGION_BITS;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(REGION_SIZE, size - offset));
+        }
+    }
+
+    /**
+     * Repairs the input file into the output file.
+     *
+     * @param in        the TOON file to repair
+     * @param out       the file receiving the repaired TOON, created or truncated
+     * @param repairer  the repairer for the chunks, ideally tokenizing with {@link FastToonLexer}
+     * @param chunkSize the size after which a chunk is cut at the next block start
+     * @throws IOException              if reading or writing fails
+     * @throws IllegalArgumentException if both paths denote the same file or a block exceeds 2 GiB
+     */
+    static void repair(final Path in, final Path out, final ToonRepairer repairer, final int chunkSize)
+            throws IOException {
+        // the output is truncated before the mapped input is read
+        if (Files.exists(out) && Files.isSameFile(in, out)) {
+            throw new IllegalArgumentException("Cannot repair a file into itself: " + in);
+        }
+        try (FileChannel input = FileChannel.open(in, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(out, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedToonFile file = new MappedToonFile(input);
+            long start = 0;
+            while (start < file.size) {
+                final long end = file.chunkEnd(start, chunkSize);
+                final Chunk chunk = new Chunk(file, start, length(start, end));
+                if (repairer.isValid(chunk)) {
+                    transfer(input, start, end - start, output);
+                } else {
+                    final String repaired = repairer.repair(chunk.toString());
+                    writeFully(output, ByteBuffer.wrap(repaired.getBytes(StandardCharsets.ISO_8859_1)));
+                }
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * Finds the end of the chunk starting at the given offset, cut like {@link ToonChunkReader#nextChunk()}.
+     */
+    private long chunkEnd(final long start, final int chunkSize) {
+        long position = start;
+        boolean afterBlankLine = false;
+        while (position < size) {
+            final long end = lineEnd(position);
+            final Chunk line = new Chunk(this, position, length(position, end));
+            if (position - start >= chunkSize && ToonChunkReader.isBlockStart(line, afterBlankLine)) {
+                return position;
+            }
+            afterBlankLine = ToonChunkReader.isBlank(line);
+            position = end;
+        }
+        return size;
+    }
+
+    /**
+     * @return the length of the range as a chunk length
+     * @throws IllegalArgumentException if the range exceeds the longest chunk of 2 GiB
+     */
+    private static int length(final long start, final long end) {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The block at offset " + start
+                    + " exceeds 2 GiB and cannot be repaired as one chunk");
+        }
+        return (int) (end - start);
+    }
+
+    private long lineEnd(final long from) {
+        long position = from;
+        while (position < size && byteAt(position) != '\n') {
+            position++;
+        }
+        return Math.min(position + 1, size);
+    }
+
+    private byte byteAt(final long position) {
+        return regions[(int) (position >>> REGION_BITS)].get((int) (position & (REGION_SIZE - 1)));
+    }
+
+    private static void transfer(final FileChannel input, final long position, final long count,
+                                 final FileChannel output) throws IOException {
+        long done = 0;
+        while (done < count) {
+            done += input.transferTo(position + done, count - done, output);
+        }
+    }
+
+    private static void writeFully(final FileChannel output, final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * A chunk of the mapped file as characters, one per byte.
+     */
+    private record Chunk(MappedToonFile file, long offset, int length) implements CharSequence {
+
+        @Override
+        public char charAt(final int index) {
+            return (char) (file.byteAt(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return new Chunk(file, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            final byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = file.byteAt(offset + i);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
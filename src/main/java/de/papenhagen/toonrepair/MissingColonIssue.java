@@ -21,30 +21,44 @@ final class MissingColonIssue implements SyntaxIssue {
     }
 
     /**
-     * Inserts a missing colon into the source string at the token position.
+     * Emits the insertion of a missing colon right after the token.
      *
-     * @param source the original source string
-     * @return the repaired source string
+     * @param source the original source
+     * @param edits  the buffer collecting the edits
      */
     @Override
-    public String apply(final String source) {
+    public void emit(final CharSequence source, final EditBuffer edits) {
         final int pos = token.getStopIndex();
         if (pos < 0 || pos >= source.length()) {
-            return source;
+            return;
         }
 
         // Avoid adding redundant colon if it's already there
         if (pos + 1 < source.length() && source.charAt(pos + 1) == ':') {
-            return source;
+            return;
         }
 
-        // Check if there is already a colon or if we are at the end of the line
         // We want to insert it immediately after the token text in the original source
-        return source.substring(0, pos + 1) + ':' + source.substring(pos + 1);
+        edits.add(TextEdit.insert(pos + 1, ":"), this);
+    }
+
+    @Override
+    public IssueKind kind() {
+        return IssueKind.MISSING_COLON;
     }
 
     @Override
     public int getStartIndex() {
         return token.getStartIndex();
     }
+
+    @Override
+    public int getLine() {
+        return token.getLine();
+    }
+
+    @Override
+    public int getColumn() {
+        return token.getCharPositionInLine();
+    }
 }
@@ -0,0 +1,56 @@
+package de.papenhagen.toonrepair;
+
+import org.antlr.v4.runtime.Token;
+
+/**
+ * Handles two lines that ran together by inserting a line break before the offending token.
+ */
+final class MissingNewlineIssue implements SyntaxIssue {
+
+    private final Token token;
+
+    /**
+     * Creates a new MissingNewlineIssue.
+     *
+     * @param token the token that should start a new line
+     */
+    MissingNewlineIssue(final Token token) {
+        this.token = token;
+    }
+
+    /**
+     * Emits the insertion of a line break right before the token, unless it already starts a line.
+     *
+     * @param source the original source
+     * @param edits  the buffer collecting the edits
+     */
+    @Override
+    public void emit(final CharSequence source, final EditBuffer edits) {
+        final int pos = token.getStartIndex();
+        if (pos <= 0 || pos > source.length() || source.charAt(pos - 1) == '\n') {
+            return;
+        }
+
+        edits.add(TextEdit.insert(pos, "\n"), this);
+    }
+
+    @Override
+    public IssueKind kind() {
+        return IssueKind.MISSING_NEWLINE;
+    }
+
+    @Override
+    public int getStartIndex() {
+        return token.getStartIndex();
+    }
+
+    @Override
+    public int getLine() {
+        return token.getLine();
+    }
+
+    @Override
+    public int getColumn() {
+        return token.getCharPositionInLine();
+    }
+}
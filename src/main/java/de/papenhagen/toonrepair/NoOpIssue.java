@@ -2,16 +2,31 @@
 package de.papenhagen.toonrepair;
 
 /**
- * A no-op repair that returns the source unchanged.
+ * A no-op repair that emits no edits and leaves the source unchanged.
  */
 final class NoOpIssue implements SyntaxIssue {
     @Override
-    public String apply(String source) {
-        return source;
+    public void emit(final CharSequence source, final EditBuffer edits) {
+        // nothing to repair
+    }
+
+    @Override
+    public IssueKind kind() {
+        return IssueKind.NO_OP;
     }
 
     @Override
     public int getStartIndex() {
         return -1;
     }
+
+    @Override
+    public int getLine() {
+        return 0;
+    }
+
+    @Override
+    public int getColumn() {
+        return -1;
+    }
 }
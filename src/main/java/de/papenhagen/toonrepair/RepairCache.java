@@ -0,0 +1,237 @@
+package de.papenhagen.toonrepair;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of repair results, keyed by a 64-bit hash of the input and bounded by the bytes it retains.
+ * A hit is verified against the stored input, so hash collisions only cost a miss. Entries are evicted in
+ * least-recently-used order once the retained bytes exceed the bound; the cache is split into shards with their
+ * own lock and share of the bound, so concurrent repairers rarely contend.
+ * Results that ran out of their time budget are not cached, as they depend on timing rather than on the input.
+ * A cache is safe to share between threads, but only between repairers with the same options, see
+ * {@link RepairOptions#withCache(RepairCache)}.
+ */
+public final class RepairCache {
+
+    private static final int SHARDS = 16;
+
+    /**
+     * Estimated bytes of an entry besides its strings: map node, entry, result, edit list and hash key.
+     */
+    private static final int ENTRY_OVERHEAD = 160;
+
+    /**
+     * Estimated bytes of a recorded edit, including its replacement string.
+     */
+    private static final int EDIT_SIZE = 96;
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long PRIME = 0xC2B2AE3D27D4EB4FL;
+
+    private final Shard[] shards = new Shard[SHARDS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new RepairCache.
+     *
+     * @param maxBytes the upper bound of the bytes retained by the cached inputs and results
+     * @throws IllegalArgumentException if maxBytes is not positive
+     */
+    public RepairCache(final long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(Math.max(maxBytes / SHARDS, 1));
+        }
+    }
+
+    /**
+     * @return the number of lookups that found a cached result
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that found no cached result
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of results evicted to stay within the byte bound
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the estimated bytes currently retained
+     */
+    public long bytes() {
+        long bytes = 0;
+        for (final Shard shard : shards) {
+            bytes += shard.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public int size() {
+        int size = 0;
+        for (final Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes all cached results; the statistics are kept.
+     */
+    public void clear() {
+        for (final Shard shard : shards) {
+            shard.clear();
+        }
+    }
+
+    /**
+     * @param input the TOON content
+     * @return the cached result for exactly this input, {@code null} if there is none
+     */
+    RepairResult get(final String input) {
+        final long hash = hash(input);
+        final RepairResult result = shard(hash).get(hash, input);
+        (result == null ? misses : hits).increment();
+        return result;
+    }
+
+    /**
+     * Caches a result unless it depends on timing or is larger than a shard.
+     *
+     * @param input  the TOON content
+     * @param result the repair result of the input
+     */
+    void put(final String input, final RepairResult result) {
+        if (result.status() == RepairStatus.TIME_BUDGET_EXCEEDED) {
+            return;
+        }
+        final long hash = hash(input);
+        evictions.add(shard(hash).put(hash, new Entry(input, result, sizeOf(input, result))));
+    }
+
+    private Shard shard(final long hash) {
+        return shards[(int) (hash >>> 60) & (SHARDS - 1)];
+    }
+
+    private static long sizeOf(final String input, final RepairResult result) {
+        final long text = result.text() == input ? 0 : 2L * result.text().length();
+        return ENTRY_OVERHEAD + 2L * input.length() + text + (long) EDIT_SIZE * result.edits().size();
+    }
+
+    /**
+     * A 64-bit hash of the characters. Eight chars are mixed per step into two independent lanes, so the
+     * multiplications of both lanes overlap; the lanes are combined and finalized like MurmurHash3.
+     *
+     * @param text the text to hash
+     * @return the hash
+     */
+    static long hash(final CharSequence text) {
+        final int length = text.length();
+        long first = SEED ^ length;
+        long second = PRIME ^ length;
+        int i = 0;
+        for (; i + 7 < length; i += 8) {
+            first = mix(first, block(text, i));
+            second = mix(second, block(text, i + 4));
+        }
+        for (; i < length; i++) {
+            first = (first ^ text.charAt(i)) * PRIME;
+        }
+        long hash = first ^ Long.rotateLeft(second, 32);
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static long block(final CharSequence text, final int i) {
+        return text.charAt(i)
+                | (long) text.charAt(i + 1) << 16
+                | (long) text.charAt(i + 2) << 32
+                | (long) text.charAt(i + 3) << 48;
+    }
+
+    private static long mix(final long lane, final long block) {
+        return Long.rotateLeft(lane ^ Long.rotateLeft(block * PRIME, 31), 27) * SEED;
+    }
+
+    /**
+     * A cached result with the input it was computed from and its estimated size.
+     */
+    private record Entry(String input, RepairResult result, long size) {
+    }
+
+    /**
+     * A least-recently-used part of the cache with its own lock and byte bound.
+     */
+    private static final class Shard {
+
+        private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        private Shard(final long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private synchronized RepairResult get(final long hash, final String input) {
+            final Entry entry = entries.get(hash);
+            return entry != null && entry.input().equals(input) ? entry.result() : null;
+        }
+
+        /**
+         * @return the number of evicted entries
+         */
+        private synchronized int put(final long hash, final Entry entry) {
+            if (entry.size() > maxBytes) {
+                return 0;
+            }
+            final Entry replaced = entries.put(hash, entry);
+            if (replaced != null) {
+                bytes -= replaced.size();
+            }
+            bytes += entry.size();
+            int evicted = 0;
+            final Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().size();
+                eldest.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+
+        private synchronized long bytes() {
+            return bytes;
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package de.papenhagen.toonrepair;
+
+/**
+ * An edit applied by a repair, together with the issue it repairs.
+ * The offsets refer to the text as it was before the given attempt: the input for the first attempt,
+ * the result of the previous attempt otherwise. Line and column are those of the token the issue was found at.
+ *
+ * @param attempt     the 1-based repair attempt that applied the edit; dropping a document that is nothing but a
+ *                    quoted string counts as the first attempt
+ * @param offset      the start offset of the replaced range
+ * @param length      the number of replaced characters
+ * @param replacement the text inserted instead
+ * @param kind        the kind of the repaired issue, {@code null} if the edit was not made by an issue
+ * @param line        the 1-based line of the issue, 0 if unknown
+ * @param column      the 0-based column of the issue, -1 if unknown
+ */
+public record RepairEdit(int attempt, int offset, int length, String replacement, IssueKind kind, int line,
+                         int column) {
+
+    /**
+     * @return the edit without the issue details
+     */
+    public TextEdit toTextEdit() {
+        return new TextEdit(offset, length, replacement);
+    }
+}
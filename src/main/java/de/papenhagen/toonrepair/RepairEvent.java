@@ -0,0 +1,43 @@
+
+package de.papenhagen.toonrepair;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted for every repair. Costs next to nothing unless a recording enables it: the repairer only
+ * allocates an event while one does, see {@link #beginIfEnabled()}.
+ */
+@Name("de.papenhagen.toonrepair.Repair")
+@Label("TOON Repair")
+@Category("TOON Repair")
+@Description("Repair of one TOON input by a ToonRepairer")
+final class RepairEvent extends Event {
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Attempts")
+    int attempts;
+
+    @Label("Status")
+    String status;
+
+    private static final EventType TYPE = EventType.getEventType(RepairEvent.class);
+
+    /**
+     * @return a started event if a recording enables the event, {@code null} otherwise
+     */
+    static RepairEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        final RepairEvent event = new RepairEvent();
+        event.begin();
+        return event;
+    }
+}
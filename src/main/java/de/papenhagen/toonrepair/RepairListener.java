@@ -0,0 +1,45 @@
+
+package de.papenhagen.toonrepair;
+
+/**
+ * Receives telemetry from a {@link ToonRepairer}.
+ * All methods are called on the repairing thread and must be cheap; implementations shared between repairers
+ * must be thread-safe. {@link RepairMetrics} is a ready-made implementation.
+ */
+public interface RepairListener {
+
+    /**
+     * A listener that ignores everything.
+     */
+    RepairListener NONE = new RepairListener() {
+    };
+
+    /**
+     * Called for every issue found by the error strategy.
+     *
+     * @param kind the kind of the issue
+     */
+    default void issueRecorded(final IssueKind kind) {
+    }
+
+    /**
+     * Called after each timed phase of a repair.
+     *
+     * @param phase the completed phase
+     * @param nanos the time spent in the phase
+     */
+    default void phaseCompleted(final RepairPhase phase, final long nanos) {
+    }
+
+    /**
+     * Called once per repair.
+     *
+     * @param inputLength the length of the input
+     * @param attempts    the number of repair attempts, 0 if the input was valid
+     * @param status      how the repair ended
+     * @param nanos       the total time of the repair
+     */
+    default void repairCompleted(final int inputLength, final int attempts, final RepairStatus status,
+                                 final long nanos) {
+    }
+}
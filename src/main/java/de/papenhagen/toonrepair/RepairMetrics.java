@@ -0,0 +1,153 @@
+
+package de.papenhagen.toonrepair;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead {@link RepairListener} that aggregates counters with {@link LongAdder}s.
+ * Counts issues per kind, attempts and statuses of the repairs, sums the time per phase and records
+ * repair latencies in power-of-two nanosecond buckets, which bounds the error of a percentile to a factor of 2.
+ * A single instance can be shared by all repairers.
+ */
+public final class RepairMetrics implements RepairListener {
+
+    private static final int BUCKETS = 64;
+    private static final int ATTEMPT_BUCKETS = 16;
+
+    private final Map<IssueKind, LongAdder> issues = new EnumMap<>(IssueKind.class);
+    private final Map<RepairPhase, LongAdder> phaseNanos = new EnumMap<>(RepairPhase.class);
+    private final Map<RepairStatus, LongAdder> statuses = new EnumMap<>(RepairStatus.class);
+    private final LongAdder[] attempts = new LongAdder[ATTEMPT_BUCKETS];
+    private final LongAdder[] latency = new LongAdder[BUCKETS];
+    private final LongAdder repairs = new LongAdder();
+
+    /**
+     * Creates a new RepairMetrics.
+     */
+    public RepairMetrics() {
+        for (final IssueKind kind : IssueKind.values()) {
+            issues.put(kind, new LongAdder());
+        }
+        for (final RepairPhase phase : RepairPhase.values()) {
+            phaseNanos.put(phase, new LongAdder());
+        }
+        for (final RepairStatus status : RepairStatus.values()) {
+            statuses.put(status, new LongAdder());
+        }
+        for (int i = 0; i < attempts.length; i++) {
+            attempts[i] = new LongAdder();
+        }
+        for (int i = 0; i < latency.length; i++) {
+            latency[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void issueRecorded(final IssueKind kind) {
+        issues.get(kind).increment();
+    }
+
+    @Override
+    public void phaseCompleted(final RepairPhase phase, final long nanos) {
+        phaseNanos.get(phase).add(nanos);
+    }
+
+    @Override
+    public void repairCompleted(final int inputLength, final int attempts, final RepairStatus status,
+                                final long nanos) {
+        repairs.increment();
+        this.attempts[Math.min(attempts, this.attempts.length - 1)].increment();
+        statuses.get(status).increment();
+        latency[bucket(nanos)].increment();
+    }
+
+    /**
+     * @return the number of completed repairs
+     */
+    public long repairs() {
+        return repairs.sum();
+    }
+
+    /**
+     * @return the number of repairs whose text still has syntax errors, because the repair got stuck at a fixed
+     * point or gave up on a budget
+     */
+    public long unconverged() {
+        long sum = 0;
+        for (final RepairStatus status : RepairStatus.values()) {
+            if (!status.isConverged()) {
+                sum += statuses.get(status).sum();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @param status the repair status
+     * @return the number of repairs that ended with that status
+     */
+    public long repairsWithStatus(final RepairStatus status) {
+        return statuses.get(status).sum();
+    }
+
+    /**
+     * @param kind the issue kind
+     * @return the number of recorded issues of that kind
+     */
+    public long issues(final IssueKind kind) {
+        return issues.get(kind).sum();
+    }
+
+    /**
+     * @param attemptCount the number of attempts, 0 for input that was valid right away
+     * @return the number of repairs that needed exactly that many attempts; the count for
+     * {@value #ATTEMPT_BUCKETS} - 1 includes all repairs with more attempts
+     */
+    public long repairsWithAttempts(final int attemptCount) {
+        return attempts[attemptCount].sum();
+    }
+
+    /**
+     * @param phase the repair phase
+     * @return the total time spent in the phase in nanoseconds
+     */
+    public long phaseNanos(final RepairPhase phase) {
+        return phaseNanos.get(phase).sum();
+    }
+
+    /**
+     * Estimates a latency percentile from the buckets.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the upper bound of the bucket containing the percentile in nanoseconds, 0 if nothing was recorded
+     */
+    public long latencyPercentile(final double percentile) {
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latency[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Bucket {@code i} holds latencies in {@code [2^i, 2^(i+1))}; bucket 0 also holds 0.
+     */
+    private static int bucket(final long nanos) {
+        return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+}
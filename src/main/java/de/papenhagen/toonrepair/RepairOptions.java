@@ -0,0 +1,152 @@
+package de.papenhagen.toonrepair;
+
+import java.time.Duration;
+
+/**
+ * Configuration of a {@link ToonRepairer}.
+ *
+ * @param dfaCache         the DFA cache used for prediction
+ * @param handWrittenLexer whether to tokenize with {@link FastToonLexer} instead of the generated {@link ToonLexer}
+ * @param listener         the listener receiving telemetry
+ * @param maxAttempts      the upper bound of repair attempts per input
+ * @param timeBudget       the time after which a repair stops starting new attempts
+ * @param rankCandidates   whether to try several repairs per error and keep the best
+ * @param cache            the cache of repair results, {@code null} for none
+ * @param memoizeLines     whether lines of the same token shape reuse the repair of the first such line
+ * @param partialReparse   whether attempts after the first re-parse only the lines touched by the previous edits
+ */
+public record RepairOptions(ToonDfaCache dfaCache, boolean handWrittenLexer, RepairListener listener,
+                            int maxAttempts, Duration timeBudget, boolean rankCandidates, RepairCache cache,
+                            boolean memoizeLines, boolean partialReparse) {
+
+    /**
+     * Default upper bound of repair attempts per input.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * A time budget that never runs out.
+     */
+    public static final Duration UNLIMITED = Duration.ofNanos(Long.MAX_VALUE);
+
+    /**
+     * Creates new RepairOptions.
+     *
+     * @throws IllegalArgumentException if maxAttempts is not positive or timeBudget is negative
+     */
+    public RepairOptions {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        if (timeBudget.isNegative()) {
+            throw new IllegalArgumentException("timeBudget must not be negative: " + timeBudget);
+        }
+    }
+
+    /**
+     * @return the options used by {@link ToonRepair}: the default DFA cache, the generated lexer, no telemetry,
+     * {@value #DEFAULT_MAX_ATTEMPTS} attempts, no time limit, a single repair per error, no cache, no line memoization
+     * and whole-document re-parses
+     */
+    public static RepairOptions defaults() {
+        return new RepairOptions(ToonDfaCache.defaultCache(), false, RepairListener.NONE, DEFAULT_MAX_ATTEMPTS,
+                UNLIMITED, false, null, false, false);
+    }
+
+    /**
+     * @param dfaCache the DFA cache used for prediction
+     * @return a copy of these options using the given cache
+     */
+    public RepairOptions withDfaCache(final ToonDfaCache dfaCache) {
+        return new RepairOptions(dfaCache, handWrittenLexer, listener, maxAttempts, timeBudget, rankCandidates, cache,
+                memoizeLines, partialReparse);
+    }
+
+    /**
+     * @param handWrittenLexer whether to tokenize with {@link FastToonLexer}
+     * @return a copy of these options with the given lexer choice
+     */
+    public RepairOptions withHandWrittenLexer(final boolean handWrittenLexer) {
+        return new RepairOptions(dfaCache, handWrittenLexer, listener, maxAttempts, timeBudget, rankCandidates, cache,
+                memoizeLines, partialReparse);
+    }
+
+    /**
+     * @param listener the listener receiving telemetry
+     * @return a copy of these options reporting to the given listener
+     */
+    public RepairOptions withListener(final RepairListener listener) {
+        return new RepairOptions(dfaCache, handWrittenLexer, listener, maxAttempts, timeBudget, rankCandidates, cache,
+                memoizeLines, partialReparse);
+    }
+
+    /**
+     * @param maxAttempts the upper bound of repair attempts per input
+     * @return a copy of these options with the given attempt limit
+     */
+    public RepairOptions withMaxAttempts(final int maxAttempts) {
+        return new RepairOptions(dfaCache, handWrittenLexer, listener, maxAttempts, timeBudget, rankCandidates, cache,
+                memoizeLines, partialReparse);
+    }
+
+    /**
+     * @param timeBudget the time after which a repair stops starting new attempts
+     * @return a copy of these options with the given time limit
+     */
+    public RepairOptions withTimeBudget(final Duration timeBudget) {
+        return new RepairOptions(dfaCache, handWrittenLexer, listener, maxAttempts, timeBudget, rankCandidates, cache,
+                memoizeLines, partialReparse);
+    }
+
+    /**
+     * Ranking re-parses a window around every error once per alternative repair, on all cores. It costs more
+     * per attempt but picks better repairs for badly broken input, which then needs fewer attempts.
+     *
+     * @param rankCandidates whether to try several repairs per error and keep the best
+     * @return a copy of these options with the given repair strategy
+     */
+    public RepairOptions withCandidateRanking(final boolean rankCandidates) {
+        return new RepairOptions(dfaCache, handWrittenLexer, listener, maxAttempts, timeBudget, rankCandidates, cache,
+                memoizeLines, partialReparse);
+    }
+
+    /**
+     * A cache returns the result of an input it has seen before without lexing or parsing it again. The cached
+     * results depend on the other options, so a cache must only be shared between repairers with equal options.
+     *
+     * @param cache the cache of repair results, {@code null} for none
+     * @return a copy of these options using the given cache
+     */
+    public RepairOptions withCache(final RepairCache cache) {
+        return new RepairOptions(dfaCache, handWrittenLexer, listener, maxAttempts, timeBudget, rankCandidates, cache,
+                memoizeLines, partialReparse);
+    }
+
+    /**
+     * With line memoization the first attempt repairs the document line by line. Every line is fingerprinted by
+     * the types of its tokens and the gaps between them; once two lines of a shape were repaired with the same
+     * edits, the remaining lines of that shape get these edits without being parsed. It pays off for generated
+     * documents repeating the same defect in every record and costs a little for documents without repetition.
+     *
+     * @param memoizeLines whether lines of the same token shape reuse the repair of the first such line
+     * @return a copy of these options with the given repair strategy
+     */
+    public RepairOptions withLineMemoization(final boolean memoizeLines) {
+        return new RepairOptions(dfaCache, handWrittenLexer, listener, maxAttempts, timeBudget, rankCandidates, cache,
+                memoizeLines, partialReparse);
+    }
+
+    /**
+     * With partial re-parsing, the attempts after the first re-lex and re-parse just the lines touched by the
+     * previous round's edits instead of the whole document. Later attempts then cost in proportion to the repaired
+     * lines, but ANTLR's error recovery depends on the lines around an error, so for input that cannot be repaired
+     * completely the result may differ from the one of whole-document re-parses.
+     *
+     * @param partialReparse whether attempts after the first re-parse only the lines touched by the previous edits
+     * @return a copy of these options with the given repair strategy
+     */
+    public RepairOptions withPartialReparse(final boolean partialReparse) {
+        return new RepairOptions(dfaCache, handWrittenLexer, listener, maxAttempts, timeBudget, rankCandidates, cache,
+                memoizeLines, partialReparse);
+    }
+}
@@ -0,0 +1,24 @@
+
+package de.papenhagen.toonrepair;
+
+/**
+ * The phases of a repair whose time is reported to a {@link RepairListener}.
+ */
+public enum RepairPhase {
+    /**
+     * The fast validation pass that lets valid input skip the repair loop.
+     */
+    VALIDATE,
+    /**
+     * Tokenizing the lines of one repair attempt.
+     */
+    LEX,
+    /**
+     * Parsing the lines of one repair attempt, including error recovery.
+     */
+    PARSE,
+    /**
+     * Turning the issues into edits and applying them.
+     */
+    APPLY
+}
@@ -0,0 +1,37 @@
+package de.papenhagen.toonrepair;
+
+import java.util.List;
+
+/**
+ * The outcome of a repair: the repaired text and the edits that produced it.
+ * Replaying the edits of each attempt on the text before that attempt, attempt by attempt, turns the input
+ * into {@link #text()}, so callers never need to diff input and output themselves.
+ *
+ * @param text      the repaired TOON
+ * @param edits     the applied edits, ordered by attempt and by offset within an attempt
+ * @param attempts  the number of repair attempts, 0 if the input was valid
+ * @param status    how the repair ended
+ */
+public record RepairResult(String text, List<RepairEdit> edits, int attempts, RepairStatus status) {
+
+    /**
+     * Creates a new RepairResult.
+     */
+    public RepairResult {
+        edits = List.copyOf(edits);
+    }
+
+    /**
+     * @return {@code true} if {@link #text()} parses without syntax errors
+     */
+    public boolean converged() {
+        return status.isConverged();
+    }
+
+    /**
+     * @return {@code true} if no edit was applied
+     */
+    public boolean isUnchanged() {
+        return edits.isEmpty();
+    }
+}
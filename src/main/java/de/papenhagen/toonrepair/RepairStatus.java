@@ -0,0 +1,40 @@
+package de.papenhagen.toonrepair;
+
+/**
+ * How a repair ended.
+ */
+public enum RepairStatus {
+    /**
+     * The input was valid and returned as is.
+     */
+    VALID(true),
+    /**
+     * The repaired text parses without syntax errors.
+     */
+    REPAIRED(true),
+    /**
+     * Further attempts would not change the text, but it still has syntax errors.
+     */
+    FIXED_POINT(false),
+    /**
+     * The attempt budget was used up while attempts were still changing the text.
+     */
+    ATTEMPTS_EXHAUSTED(false),
+    /**
+     * The time budget ran out before the repair converged.
+     */
+    TIME_BUDGET_EXCEEDED(false);
+
+    private final boolean converged;
+
+    RepairStatus(final boolean converged) {
+        this.converged = converged;
+    }
+
+    /**
+     * @return {@code true} if the returned text parses without syntax errors
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+}
@@ -0,0 +1,22 @@
+package de.papenhagen.toonrepair;
+
+import java.util.List;
+
+/**
+ * Complete lines of a TOON stream after repair, as published by a {@link ToonRepairProcessor}.
+ * Concatenating the texts of all chunks in order yields the repaired document.
+ *
+ * @param line   the 1-based number of the first received line of the chunk within the stream
+ * @param text   the repaired lines, each ending with a line break except possibly the last line of the stream
+ * @param status how the repair of the lines ended
+ * @param edits  the applied edits; offsets refer to the received lines of the chunk, lines to the whole stream
+ */
+public record RepairedChunk(int line, String text, RepairStatus status, List<RepairEdit> edits) {
+
+    /**
+     * Creates a new RepairedChunk.
+     */
+    public RepairedChunk {
+        edits = List.copyOf(edits);
+    }
+}
@@ -2,15 +2,28 @@
 package de.papenhagen.toonrepair;
 
 import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a syntax issue found in a TOON file that can be automatically repaired.
  * This is a sealed interface with known implementations for specific issue types.
  */
-public sealed interface SyntaxIssue permits MissingColonIssue, ArrayHeaderIssue, UnexpectedTokenIssue, NoOpIssue {
+public sealed interface SyntaxIssue permits MissingColonIssue, ArrayHeaderIssue, UnexpectedTokenIssue,
+        MissingNewlineIssue, UnclosedQuoteIssue, NoOpIssue {
+
+    /**
+     * Emits the range edits that repair this syntax issue into the shared edit buffer.
+     * Offsets refer to the unmodified source; nothing is emitted if the issue cannot be repaired.
+     *
+     * @param source the original source
+     * @param edits  the buffer collecting the edits of the current repair round
+     */
+    void emit(CharSequence source, EditBuffer edits);
 
     /**
      * Applies the repair for this syntax issue to the given source string.
@@ -18,28 +31,49 @@ public sealed interface SyntaxIssue permits MissingColonIssue, ArrayHeaderIssue,
      * @param source the original source string
      * @return the repaired source string
      */
-    String apply(String source);
+    default String apply(final String source) {
+        final EditBuffer edits = new EditBuffer();
+        emit(source, edits);
+        return edits.applyTo(source);
+    }
+
+    /**
+     * @return the kind of this issue
+     */
+    IssueKind kind();
 
     /**
      * @return the start index of the issue in the source string
      */
     int getStartIndex();
 
+    /**
+     * @return the 1-based line of the token the issue was found at, 0 if there is none
+     */
+    int getLine();
+
+    /**
+     * @return the 0-based column of the token the issue was found at, -1 if there is none
+     */
+    int getColumn();
+
     /**
      * Factory method to create a specific SyntaxIssue based on the parser state and token.
+     * Classifies by the index of the current rule and the types of nearby tokens, so no parse tree text or rule
+     * name list is built; the work per issue is bounded by the tokens of the current line.
      *
      * @param parser the parser that encountered the issue
      * @param token  the token associated with the issue
      * @return a specific implementation of SyntaxIssue
      */
     static SyntaxIssue from(final Parser parser, final Token token) {
-        final String context = parser.getContext().getText();
-        final List<String> stack = parser.getRuleInvocationStack();
-        final String ruleName = stack.isEmpty() ? "" : stack.get(0);
+        final ParserRuleContext context = parser.getContext();
+        final int rule = context.getRuleIndex();
+        final TokenStream tokens = parser.getTokenStream();
 
         // Array header issues
-        if (context.contains("[") || context.contains("]") ||
-            ruleName.contains("tabularHeader") || ruleName.contains("bracket")) {
+        if (rule == ToonParser.RULE_tabularHeaderLine || rule == ToonParser.RULE_bracketLength
+                || rule == ToonParser.RULE_bracketDelimSpec || hasBracketOnLine(tokens, context)) {
             return new ArrayHeaderIssue(token);
         }
 
@@ -49,22 +83,83 @@ public sealed interface SyntaxIssue permits MissingColonIssue, ArrayHeaderIssue,
         }
 
         // Missing colon issue
-        final int index = token.getTokenIndex();
-        if (index > 0) {
-            final Token prev = parser.getTokenStream().get(index - 1);
+        final Token prev = previousOnLine(tokens, token);
+        if (prev != null) {
             // Only suggest missing colon if it looks like a key followed by something else
             if (prev.getType() == ToonParser.IDENT || prev.getType() == ToonParser.QUOTED_STRING || prev.getType() == ToonParser.UNQUOTED_VALUE) {
-                // BUT only if NOT inside brackets!
                 return new MissingColonIssue(prev);
             }
         }
 
-        // If it's a known problematic fuzzer-injected token, remove it
-        if (token.getType() == ToonParser.TAB) {
-            return new UnexpectedTokenIssue(token);
-        }
-
         // Default: Do nothing or return a dummy issue that doesn't change anything
         return new NoOpIssue();
     }
+
+    /**
+     * Creates the alternative repairs for an error besides the one chosen by {@link #from(Parser, Token)},
+     * for {@link CandidateRanker} to choose from.
+     *
+     * @param parser the parser that encountered the issue
+     * @param token  the token associated with the issue
+     * @param chosen the issue created by {@link #from(Parser, Token)}
+     * @return the alternative issues, none of the kind of {@code chosen}
+     */
+    static List<SyntaxIssue> alternatives(final Parser parser, final Token token, final SyntaxIssue chosen) {
+        final List<SyntaxIssue> alternatives = new ArrayList<>(5);
+        final Token prev = previousOnLine(parser.getTokenStream(), token);
+        if (prev != null && chosen.kind() != IssueKind.MISSING_COLON) {
+            if (prev.getType() != ToonParser.NEWLINE && prev.getType() != ToonParser.COLON) {
+                alternatives.add(new MissingColonIssue(prev));
+            }
+        }
+        if (token.getType() != Token.EOF) {
+            if (chosen.kind() != IssueKind.UNEXPECTED_TOKEN) {
+                alternatives.add(new UnexpectedTokenIssue(token));
+            }
+            if (chosen.kind() != IssueKind.ARRAY_HEADER) {
+                alternatives.add(new ArrayHeaderIssue(token));
+            }
+        }
+        alternatives.add(new MissingNewlineIssue(token));
+        alternatives.add(new UnclosedQuoteIssue(token));
+        return alternatives;
+    }
+
+    /**
+     * Finds the token before the given one, skipping the zero-width INDENT and DEDENT tokens.
+     *
+     * @param tokens the token stream of the parser
+     * @param token  the token associated with the issue
+     * @return the previous token with text, {@code null} if there is none
+     */
+    private static Token previousOnLine(final TokenStream tokens, final Token token) {
+        for (int i = token.getTokenIndex() - 1; i >= 0; i--) {
+            final Token prev = tokens.get(i);
+            if (prev.getType() != ToonParser.INDENT && prev.getType() != ToonParser.DEDENT) {
+                return prev;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the current rule has already matched a bracket on the current line.
+     *
+     * @param tokens  the token stream of the parser
+     * @param context the current rule context
+     * @return {@code true} if a bracket token was consumed in the rule since the last line break
+     */
+    private static boolean hasBracketOnLine(final TokenStream tokens, final ParserRuleContext context) {
+        final int first = context.getStart() == null ? 0 : Math.max(context.getStart().getTokenIndex(), 0);
+        for (int i = tokens.index() - 1; i >= first; i--) {
+            final int type = tokens.get(i).getType();
+            if (type == ToonParser.LBRACK || type == ToonParser.RBRACK) {
+                return true;
+            }
+            if (type == ToonParser.NEWLINE) {
+                return false;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,56 @@
+
+package de.papenhagen.toonrepair;
+
+/**
+ * A single range edit on a TOON source: the {@code length} characters starting at {@code offset}
+ * are replaced by {@code replacement}. Insertions have a length of 0, deletions an empty replacement.
+ *
+ * @param offset      the start offset in the original source
+ * @param length      the number of replaced characters
+ * @param replacement the text inserted instead
+ */
+public record TextEdit(int offset, int length, String replacement) {
+
+    /**
+     * Creates a new TextEdit.
+     *
+     * @throws IllegalArgumentException if offset or length are negative
+     */
+    public TextEdit {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid edit range: offset=" + offset + ", length=" + length);
+        }
+    }
+
+    /**
+     * @param offset the insert position
+     * @param text   the inserted text
+     * @return an edit inserting {@code text} at {@code offset}
+     */
+    public static TextEdit insert(final int offset, final String text) {
+        return new TextEdit(offset, 0, text);
+    }
+
+    /**
+     * @param offset the start of the deleted range
+     * @param length the number of deleted characters
+     * @return an edit deleting the given range
+     */
+    public static TextEdit delete(final int offset, final int length) {
+        return new TextEdit(offset, length, "");
+    }
+
+    /**
+     * @return the exclusive end offset of the replaced range
+     */
+    public int end() {
+        return offset + length;
+    }
+
+    /**
+     * @return {@code true} if this edit does not replace any existing characters
+     */
+    public boolean isInsert() {
+        return length == 0;
+    }
+}
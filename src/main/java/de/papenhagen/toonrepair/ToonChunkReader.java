@@ -0,0 +1,156 @@
+
+package de.papenhagen.toonrepair;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a TOON character stream into chunks of whole lines.
+ * A chunk grows until it reaches the target size and is then cut before the next line that starts a new
+ * top-level block, see {@link #isBlockStart(CharSequence, boolean)}, so a block (e.g. a tabular header with its
+ * rows) is never split. Memory is bounded by the target size plus the largest block, not by the size of the
+ * stream.
+ */
+final class ToonChunkReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final int targetChunkSize;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder chunk = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean eof;
+    private String pending;
+    private boolean afterBlankLine;
+
+    /**
+     * Creates a new ToonChunkReader.
+     *
+     * @param in              the TOON character stream
+     * @param targetChunkSize the size after which a chunk is cut at the next block start
+     */
+    ToonChunkReader(final Reader in, final int targetChunkSize) {
+        this.in = in;
+        this.targetChunkSize = targetChunkSize;
+    }
+
+    /**
+     * Reads the next chunk.
+     *
+     * @return the next chunk of whole lines including their line breaks, or {@code null} at the end of the stream
+     * @throws IOException if reading fails
+     */
+    String nextChunk() throws IOException {
+        chunk.setLength(0);
+        if (pending != null) {
+            chunk.append(pending);
+            pending = null;
+        }
+
+        String next;
+        while ((next = readLine()) != null) {
+            final boolean cut = chunk.length() >= targetChunkSize && isBlockStart(next, afterBlankLine);
+            afterBlankLine = isBlank(next);
+            if (cut) {
+                pending = next;
+                break;
+            }
+            chunk.append(next);
+        }
+        return chunk.isEmpty() ? null : chunk.toString();
+    }
+
+    /**
+     * Checks whether a line starts a new top-level block. Any line that is not indented might be one more row of
+     * a tabular block, so only lines that cannot be one qualify: a line after a blank line, or a line with a
+     * {@code :} or {@code [} before its first delimiter, i.e. a key or an array header. A quote before them
+     * leaves the line undecided, and it is not treated as a block start.
+     *
+     * @param line           the line to check
+     * @param afterBlankLine whether the line follows a blank line
+     * @return {@code true} if a chunk may be cut before this line
+     */
+    static boolean isBlockStart(final CharSequence line, final boolean afterBlankLine) {
+        if (line.isEmpty() || !isBlockStart(line.charAt(0))) {
+            return false;
+        }
+        if (afterBlankLine) {
+            return true;
+        }
+        for (int i = 0; i < line.length(); i++) {
+            switch (line.charAt(i)) {
+                case ':', '[' -> {
+                    return true;
+                }
+                case ',', '|', '\t', '"', '\n' -> {
+                    return false;
+                }
+                default -> {
+                    // part of a key or a cell
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param first the first character of a line
+     * @return {@code true} if a line starting with this character is not indented and may start a block
+     */
+    private static boolean isBlockStart(final char first) {
+        return Character.isLetter(first) || first == '_' || first == '#' || first == '-' || first == '[';
+    }
+
+    /**
+     * @param line a line including its line break
+     * @return {@code true} if the line holds nothing but whitespace
+     */
+    static boolean isBlank(final CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads one line including its line break.
+     *
+     * @return the line, or {@code null} at the end of the stream
+     */
+    private String readLine() throws IOException {
+        line.setLength(0);
+        while (true) {
+            if (position == limit) {
+                if (eof || !fill()) {
+                    return line.isEmpty() ? null : line.toString();
+                }
+            }
+            final int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            if (position < limit) {
+                position++; // include the line break
+                line.append(buffer, start, position - start);
+                return line.toString();
+            }
+            line.append(buffer, start, position - start);
+        }
+    }
+
+    private boolean fill() throws IOException {
+        final int read = in.read(buffer, 0, buffer.length);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
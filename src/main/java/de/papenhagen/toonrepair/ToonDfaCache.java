@@ -0,0 +1,232 @@
+
+package de.papenhagen.toonrepair;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded DFA and prediction context cache for the TOON lexer and parser.
+ * The generated recognizers share static caches that only ever grow; malformed input drives unusual prediction
+ * paths and keeps adding states. Recognizers bound to this cache use its own DFA arrays instead. Once the
+ * number of cached states and contexts exceeds {@code maxSize}, the cache swaps in fresh, empty arrays and the
+ * old ones become garbage as soon as the parses still using them finish. The fresh arrays are warmed up again,
+ * unless the warm-up alone exceeds {@code maxSize}.
+ */
+public final class ToonDfaCache {
+
+    /**
+     * Built-in corpus covering every line kind in valid and broken form.
+     */
+    private static final List<String> WARM_UP_CORPUS = List.of(
+            "name : \"Alice\"\nage : 42\nactive : true\nnothing : null\n",
+            "# comment\n\n- \"item\"\n- 42\n- a : 1, b : 2\n- \"x\",\"y\"\n",
+            "[3,] id,label,score :\n\"a\",\"b\",\"c\"\nx-1|y-2|z-3\n",
+            "name: \"Alice\"\nage: 42\n",
+            "[2|] a|b\n\"a\"|\"b\"\n",
+            "name \"Alice\"\nage  42\n",
+            "items[abc]\n  \"a\",\"b\",\"c\"\n",
+            "[ | 10 ] data\n  1,2,3\n",
+            "title: \"Hello world\n",
+            "tags[3,]:\n\t\"a\",,\"b\"\n");
+
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile long maxSize;
+    private volatile Generation generation = new Generation();
+    private long warmUpSize;
+
+    /**
+     * Creates a new ToonDfaCache.
+     *
+     * @param maxSize the number of cached DFA states and prediction contexts after which the cache is cleared
+     */
+    public ToonDfaCache(final long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cache used by {@link ToonRepair} and by repairers created without an explicit cache; unbounded
+     * unless configured with {@link #setMaxSize(long)}, and warmed up once when it is first requested
+     */
+    public static ToonDfaCache defaultCache() {
+        return Default.CACHE;
+    }
+
+    /**
+     * @param maxSize the number of cached DFA states and prediction contexts after which the cache is cleared
+     */
+    public void setMaxSize(final long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Counts the DFA states and prediction contexts cached by the lexer and parser.
+     *
+     * @return the current cache size
+     */
+    public long size() {
+        return size(generation);
+    }
+
+    /**
+     * @return how often the cache has been cleared, explicitly or because it grew past {@code maxSize}
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Swaps in fresh, empty caches. Parses in flight keep using the old ones.
+     * Recognizers bound to this cache pick up the new caches with their next repair.
+     */
+    public void clear() {
+        generation = new Generation();
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * Populates the cache by repairing a built-in corpus of valid and broken TOON, so that the first real
+     * requests do not pay for cold full-context prediction.
+     */
+    public synchronized void warmUp() {
+        final Generation current = generation;
+        warmUp(current);
+        warmUpSize = size(current);
+    }
+
+    /**
+     * Replaces the cache with a fresh, warmed-up one if it grew past {@code maxSize}. If the warm-up alone exceeds
+     * {@code maxSize}, the fresh cache stays empty, as warming it up would only make the next check clear it again.
+     *
+     * @return {@code true} if the cache was replaced
+     */
+    synchronized boolean trimToMaxSize() {
+        final long limit = maxSize;
+        if (size() <= limit) {
+            return false;
+        }
+        Generation fresh = new Generation();
+        if (warmUpSize <= limit) {
+            warmUp(fresh);
+            warmUpSize = size(fresh);
+            if (warmUpSize > limit) {
+                fresh = new Generation();
+            }
+        }
+        generation = fresh;
+        evictions.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return the current generation, to detect whether bound recognizers are stale
+     */
+    Object generation() {
+        return generation;
+    }
+
+    /**
+     * Lets the lexer predict with the current generation of this cache.
+     *
+     * @param lexer the lexer to bind
+     */
+    void bind(final ToonLexer lexer) {
+        bind(lexer, generation);
+    }
+
+    /**
+     * Lets the parser predict with the current generation of this cache, keeping its prediction mode.
+     *
+     * @param parser the parser to bind
+     */
+    void bind(final ToonParser parser) {
+        bind(parser, generation);
+    }
+
+    private static void warmUp(final Generation target) {
+        final ToonLexer lexer = new ToonLexer(null);
+        lexer.removeErrorListeners();
+        bind(lexer, target);
+        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        final ToonParser parser = new ToonParser(tokens);
+        parser.removeErrorListeners();
+        bind(parser, target);
+        final ToonRepairEngine repairEngine = new ToonRepairEngine();
+        parser.setErrorHandler(new ToonRepairErrorStrategy(repairEngine));
+
+        for (final String document : WARM_UP_CORPUS) {
+            for (final PredictionMode mode : List.of(PredictionMode.SLL, PredictionMode.LL)) {
+                parser.getInterpreter().setPredictionMode(mode);
+                lexer.setInputStream(CharStreams.fromString(document));
+                tokens.setTokenSource(lexer);
+                parser.setTokenStream(tokens);
+                try {
+                    parser.toonFile();
+                } catch (RuntimeException ignored) {
+                    // only the prediction work matters here
+                }
+                repairEngine.collectEdits(document);
+            }
+        }
+    }
+
+    private static void bind(final ToonLexer lexer, final Generation current) {
+        lexer.setInterpreter(new LexerATNSimulator(lexer, ToonLexer._ATN, current.lexerDfa, current.lexerContexts));
+    }
+
+    private static void bind(final ToonParser parser, final Generation current) {
+        final PredictionMode mode = parser.getInterpreter().getPredictionMode();
+        parser.setInterpreter(new ParserATNSimulator(parser, ToonParser._ATN, current.parserDfa, current.parserContexts));
+        parser.getInterpreter().setPredictionMode(mode);
+    }
+
+    private static long size(final Generation current) {
+        return states(current.parserDfa) + current.parserContexts.size()
+                + states(current.lexerDfa) + current.lexerContexts.size();
+    }
+
+    private static long states(final DFA[] dfas) {
+        long states = 0;
+        for (final DFA dfa : dfas) {
+            states += dfa.states.size();
+        }
+        return states;
+    }
+
+    private static DFA[] newDfa(final ATN atn) {
+        final DFA[] dfas = new DFA[atn.getNumberOfDecisions()];
+        for (int i = 0; i < dfas.length; i++) {
+            dfas[i] = new DFA(atn.getDecisionState(i), i);
+        }
+        return dfas;
+    }
+
+    /**
+     * Holds the default cache, so it is only created and warmed up once it is first requested.
+     */
+    private static final class Default {
+        private static final ToonDfaCache CACHE = new ToonDfaCache(Long.MAX_VALUE);
+
+        static {
+            CACHE.warmUp();
+        }
+    }
+
+    /**
+     * One set of caches; replaced as a whole on {@link #clear()}.
+     */
+    private static final class Generation {
+        private final DFA[] parserDfa = newDfa(ToonParser._ATN);
+        private final PredictionContextCache parserContexts = new PredictionContextCache();
+        private final DFA[] lexerDfa = newDfa(ToonLexer._ATN);
+        private final PredictionContextCache lexerContexts = new PredictionContextCache();
+    }
+}
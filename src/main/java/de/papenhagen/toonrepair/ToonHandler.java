@@ -0,0 +1,102 @@
+package de.papenhagen.toonrepair;
+
+import java.util.List;
+
+/**
+ * Receives the content of a TOON document from a {@link ToonReader}, line by line, without a tree being built.
+ * Keys, fields, cells and values are passed as written: quoted strings keep their quotes and escapes, so
+ * {@code "42"} and {@code 42} can be told apart. Indented lines are reported between {@link #startBlock()} and
+ * {@link #endBlock()}, which nest like the indentation. Lists passed to the callbacks are reused by the reader and
+ * only valid during the call. All methods do nothing by default.
+ */
+public interface ToonHandler {
+
+    /**
+     * Called before the first line.
+     */
+    default void startDocument() {
+    }
+
+    /**
+     * Called for a {@code key : value} line or for every pair of an inline object in a list item.
+     *
+     * @param key   the key
+     * @param value the value, {@code null} if the key has none
+     */
+    default void objectField(final String key, final String value) {
+    }
+
+    /**
+     * Called for an array header such as {@code [3,] id,name :}.
+     *
+     * @param length    the declared length, -1 if there is none
+     * @param delimiter the declared delimiter, {@code ','} if there is none
+     * @param fields    the field names
+     */
+    default void arrayHeader(final int length, final char delimiter, final List<String> fields) {
+    }
+
+    /**
+     * Called for every tabular row or inline list of cells.
+     *
+     * @param cells the cells
+     */
+    default void row(final List<String> cells) {
+    }
+
+    /**
+     * Called for a value standing on its own line or in a list item.
+     *
+     * @param value the value
+     */
+    default void primitive(final String value) {
+    }
+
+    /**
+     * Called before the content of a {@code -} list item.
+     */
+    default void startListItem() {
+    }
+
+    /**
+     * Called after the content of a {@code -} list item.
+     */
+    default void endListItem() {
+    }
+
+    /**
+     * Called before the first line of an indented block. The block nests under the line before it, e.g. it holds
+     * the fields of the object that a {@code key :} line without a value opens.
+     */
+    default void startBlock() {
+    }
+
+    /**
+     * Called after the last line of an indented block, before the next line at a lesser indentation.
+     */
+    default void endBlock() {
+    }
+
+    /**
+     * Called for a comment line.
+     *
+     * @param text the comment including the leading {@code #}
+     */
+    default void comment(final String text) {
+    }
+
+    /**
+     * Called for a syntax error. The reader recovers and skips what it could not recognize.
+     *
+     * @param line   the 1-based line of the error
+     * @param column the 0-based column of the error
+     */
+    default void syntaxError(final int line, final int column) {
+    }
+
+    /**
+     * Called after the last line.
+     */
+    default void endDocument() {
+    }
+}
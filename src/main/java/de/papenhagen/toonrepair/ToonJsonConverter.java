@@ -0,0 +1,142 @@
+package de.papenhagen.toonrepair;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Repairs TOON and converts it to JSON in one pass over the valid part of the input.
+ * The input is read by a {@link ToonReader} in strict mode that writes JSON as soon as a line is complete and stops
+ * at the first syntax error. Repairs never change the lines before the first error and TOON lines parse on their
+ * own, so only the rest of the input from the line of the error on is repaired and read again. Valid input is
+ * therefore parsed once, instead of once for the repair and once more for the conversion.
+ * Tabular blocks are read by a {@link ToonTableReader}, whose rows may hold numbers, booleans and {@code null}
+ * cells the grammar only accepts as values; the repaired part is searched for tables the same way. The reader
+ * carries the indentation from one part to the next, so blocks nest across tables and the repaired part.
+ * The mapping from TOON to JSON is described in {@link JsonEmitter}. Input the repair cannot make valid is not
+ * converted with lines left out but rejected.
+ * Instances are reusable but not thread-safe.
+ */
+public final class ToonJsonConverter {
+
+    private final ToonReader reader = new ToonReader();
+    private final ToonTableReader tables = new ToonTableReader();
+    private final ToonRepairer repairer = new ToonRepairer(RepairOptions.defaults().withHandWrittenLexer(true));
+
+    /**
+     * Repairs TOON and writes it as JSON.
+     *
+     * @param toon the TOON content to convert
+     * @param out  the destination of the JSON, flushed but not closed
+     * @throws IOException              if writing fails
+     * @throws IllegalArgumentException if the repaired input still has a syntax error; the JSON written up to
+     *                                  that line is left in {@code out}
+     */
+    public void convert(final CharSequence toon, final Writer out) throws IOException {
+        final JsonEmitter json = new JsonEmitter(out);
+        try {
+            reader.resetBlocks();
+            json.startDocument();
+            read(toon, json, true);
+            reader.closeBlocks(json);
+            json.endDocument();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the tables of the input with the table reader and the lines between them with the TOON reader.
+     * Lines of the original input are read up to the first syntax error and the rest of them is repaired;
+     * lines of repaired input are read as they are.
+     *
+     * @param toon     the TOON content to read
+     * @param json     the handler receiving the content
+     * @param original whether the input is the original input, which may be repaired
+     */
+    private void read(final CharSequence toon, final JsonEmitter json, final boolean original) {
+        int position = 0;
+        int scan = 0;
+        while (true) {
+            final int header = nextHeaderLine(toon, scan);
+            ToonTable table = null;
+            if (header < toon.length()) {
+                try {
+                    table = tables.read(toon, header);
+                } catch (IllegalArgumentException ex) {
+                    // not a header the table reader understands, the line is read with the lines around it
+                    scan = lineEnd(toon, header) + 1;
+                    continue;
+                }
+            }
+            final CharSequence lines = toon.subSequence(position, header);
+            if (!original) {
+                reader.readLines(lines, json, false);
+            } else {
+                final int valid = reader.readLines(lines, json, true);
+                if (valid < lines.length()) {
+                    read(repairer.repair(lines.subSequence(valid, lines.length()).toString()), json, false);
+                }
+            }
+            if (table == null) {
+                return;
+            }
+            reader.indent(toon, header, json);
+            json.table(table, toon.charAt(firstNonBlank(toon, header)) == '-');
+            position = table.end();
+            scan = position;
+        }
+    }
+
+    /**
+     * Finds the next line that is a tabular header, or a list item holding one.
+     *
+     * @return the offset of the line, the length of the input if there is none
+     */
+    private static int nextHeaderLine(final CharSequence toon, final int from) {
+        int lineStart = from;
+        while (lineStart < toon.length()) {
+            int i = firstNonBlank(toon, lineStart);
+            if (i < toon.length() && toon.charAt(i) == '-') {
+                i = firstNonBlank(toon, i + 1);
+            }
+            if (i < toon.length() && toon.charAt(i) == '[') {
+                return lineStart;
+            }
+            lineStart = lineEnd(toon, lineStart) + 1;
+        }
+        return toon.length();
+    }
+
+    private static int firstNonBlank(final CharSequence toon, final int from) {
+        int i = from;
+        while (i < toon.length() && (toon.charAt(i) == ' ' || toon.charAt(i) == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int lineEnd(final CharSequence toon, final int from) {
+        int i = from;
+        while (i < toon.length() && toon.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Repairs TOON and writes it as UTF-8 encoded JSON.
+     *
+     * @param toon the TOON content to convert
+     * @param out  the destination of the JSON, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public void convert(final CharSequence toon, final OutputStream out) throws IOException {
+        convert(toon, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,437 @@
+package de.papenhagen.toonrepair;
+
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Event-based TOON reader, the SAX counterpart to a parse tree.
+ * The parser runs without building a tree; a parse listener collects the tokens of the current line and reports
+ * the line to a {@link ToonHandler} when its rule is complete. No tree nodes are kept, but the input is tokenized
+ * up front by the {@link FastToonLexer} and the token stream buffers every token, so memory still grows with the
+ * size of the input. The {@code INDENT} and {@code DEDENT} tokens of the lexer are reported as the start and end of
+ * blocks, so the handler sees how the lines nest. Instances are reusable but not thread-safe.
+ * Lines with syntax errors are reported to {@link ToonHandler#syntaxError(int, int)} and skipped as far as the
+ * parser could not recover them; repair the input with {@link ToonRepair#parse(String)} first for best results.
+ */
+public final class ToonReader {
+
+    private final FastToonLexer lexer = new FastToonLexer("");
+    private final FastToonTokenSource source = lexer.tokenSource();
+    private final CommonTokenStream tokens = new CommonTokenStream(source);
+    private final ToonParser parser = new ToonParser(tokens);
+    private final Events events = new Events();
+    private final ANTLRErrorStrategy recovering = new DefaultErrorStrategy();
+    private final ANTLRErrorStrategy bailing = new BailErrorStrategy();
+
+    /**
+     * Creates a new ToonReader.
+     */
+    public ToonReader() {
+        parser.setBuildParseTree(false);
+        parser.removeErrorListeners();
+        parser.addErrorListener(events);
+        parser.addParseListener(events);
+    }
+
+    /**
+     * Reads a TOON document and reports its content to the handler.
+     *
+     * @param toon    the TOON content to read
+     * @param handler the handler receiving the content
+     */
+    public void read(final CharSequence toon, final ToonHandler handler) {
+        resetBlocks();
+        handler.startDocument();
+        readLines(toon, handler, false);
+        closeBlocks(handler);
+        handler.endDocument();
+    }
+
+    /**
+     * Reads the lines of a TOON fragment without reporting the start and end of a document.
+     * The fragment continues inside the blocks left open by the previous fragment, and the blocks still open at its
+     * end are left open for the next one, which may continue them; {@link #closeBlocks(ToonHandler)} ends them.
+     * A strict read predicts in SLL mode and stops at the first syntax error without reporting it; only the
+     * lines before the error are reported, so the rest of the input can be repaired and read separately; the blocks
+     * the error is in are left open then.
+     *
+     * @param toon    the TOON content to read
+     * @param handler the handler receiving the content
+     * @param strict  whether to stop at the first syntax error instead of recovering from it
+     * @return the length of the leading whole lines that were read without error, the length of the input if
+     * it has no syntax error
+     */
+    int readLines(final CharSequence toon, final ToonHandler handler, final boolean strict) {
+        lexer.reset(toon, events.blocks, events.blockDepth);
+        source.rewind();
+        tokens.setTokenSource(source);
+        parser.setTokenStream(tokens);
+        parser.setErrorHandler(strict ? bailing : recovering);
+        parser.getInterpreter().setPredictionMode(strict ? PredictionMode.SLL : PredictionMode.LL);
+
+        events.handler = handler;
+        events.strict = strict;
+        events.validEnd = 0;
+        events.end = toon.length();
+        events.primedBlocks = events.blockDepth;
+        try {
+            parser.toonFile();
+            return toon.length();
+        } catch (ParseCancellationException ex) {
+            return events.validEnd;
+        } finally {
+            events.handler = null;
+            events.line.clear();
+            events.inListItem = false;
+            events.blockDepth -= events.pendingBlocks;
+            events.pendingBlocks = 0;
+            events.primedBlocks = 0;
+        }
+    }
+
+    /**
+     * Opens or closes blocks for a line that this reader does not read, e.g. a header read by a
+     * {@link ToonTableReader}, like the lexer does for the indentation of the lines it reads.
+     *
+     * @param toon      the TOON content holding the line
+     * @param lineStart the offset of the line
+     * @param handler   the handler receiving the block events
+     */
+    void indent(final CharSequence toon, final int lineStart, final ToonHandler handler) {
+        int i = lineStart;
+        while (i < toon.length() && toon.charAt(i) == ' ') {
+            i++;
+        }
+        final char first = i < toon.length() ? toon.charAt(i) : '\n';
+        if (first == '\t' || first == '\n' || first == '\r' || first == '#') {
+            // keeps the current level, like in the lexer
+            return;
+        }
+        final int width = i - lineStart;
+        if (width > events.width(events.blockDepth)) {
+            events.push(width);
+            handler.startBlock();
+            return;
+        }
+        int keep = events.blockDepth;
+        while (keep > 0 && events.blocks[keep - 1] > width) {
+            keep--;
+        }
+        if (keep < events.blockDepth && width > events.width(keep)) {
+            // inconsistent dedent: stay at the level just closed, now with this width
+            events.blocks[keep++] = width;
+        }
+        for (; events.blockDepth > keep; events.blockDepth--) {
+            handler.endBlock();
+        }
+    }
+
+    /**
+     * Ends the blocks left open by the previous fragments.
+     *
+     * @param handler the handler receiving the block events
+     */
+    void closeBlocks(final ToonHandler handler) {
+        for (; events.blockDepth > 0; events.blockDepth--) {
+            handler.endBlock();
+        }
+    }
+
+    /**
+     * Forgets the blocks left open by the previous fragments, so that the next fragment starts a document.
+     */
+    void resetBlocks() {
+        events.blockDepth = 0;
+    }
+
+    /**
+     * Collects the tokens of the current line and turns complete lines into handler calls.
+     */
+    private static final class Events extends BaseErrorListener implements ParseTreeListener {
+
+        private final List<Token> line = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private ToonHandler handler;
+        private boolean strict;
+        private int validEnd;
+        private boolean inListItem;
+        private int contentRule;
+        private int contentStart;
+        // indentation widths of the open blocks, outermost first
+        private int[] blocks = new int[16];
+        private int blockDepth;
+        // blocks whose INDENT was read but whose first line is not complete yet
+        private int pendingBlocks;
+        // blocks opened by a previous fragment, whose INDENT starts the tokens
+        private int primedBlocks;
+        private int end;
+
+        @Override
+        public void enterEveryRule(final ParserRuleContext ctx) {
+            final int rule = ctx.getRuleIndex();
+            switch (rule) {
+                case ToonParser.RULE_blankLine, ToonParser.RULE_commentLine, ToonParser.RULE_primitiveRootLine,
+                     ToonParser.RULE_objectFieldLine, ToonParser.RULE_tabularRowLine -> line.clear();
+                case ToonParser.RULE_listItemLine -> {
+                    line.clear();
+                    inListItem = true;
+                    contentRule = -1;
+                }
+                case ToonParser.RULE_tabularHeaderLine, ToonParser.RULE_inlineObjectFragment,
+                     ToonParser.RULE_inlineCells, ToonParser.RULE_value -> {
+                    if (!inListItem && rule == ToonParser.RULE_tabularHeaderLine) {
+                        line.clear();
+                    } else if (inListItem && contentRule < 0) {
+                        // the first of these rules inside a list item is the alternative of listItemContent
+                        contentRule = rule;
+                        contentStart = line.size();
+                    }
+                }
+                default -> {
+                    // no line boundary
+                }
+            }
+        }
+
+        @Override
+        public void exitEveryRule(final ParserRuleContext ctx) {
+            if (strict && ctx.exception != null) {
+                // left by the bail strategy, the line is incomplete
+                return;
+            }
+            switch (ctx.getRuleIndex()) {
+                case ToonParser.RULE_blankLine -> lineCompleted();
+                case ToonParser.RULE_commentLine -> {
+                    startBlocks();
+                    if (!line.isEmpty() && line.getFirst().getType() == ToonParser.COMMENT) {
+                        handler.comment(line.getFirst().getText());
+                    }
+                    lineCompleted();
+                }
+                case ToonParser.RULE_primitiveRootLine -> {
+                    startBlocks();
+                    primitive(0);
+                    lineCompleted();
+                }
+                case ToonParser.RULE_objectFieldLine -> {
+                    startBlocks();
+                    fields(0);
+                    lineCompleted();
+                }
+                case ToonParser.RULE_tabularHeaderLine -> {
+                    if (!inListItem) {
+                        startBlocks();
+                        header(0);
+                        lineCompleted();
+                    }
+                }
+                case ToonParser.RULE_tabularRowLine -> {
+                    startBlocks();
+                    cells(0);
+                    lineCompleted();
+                }
+                case ToonParser.RULE_listItemLine -> {
+                    startBlocks();
+                    handler.startListItem();
+                    switch (contentRule) {
+                        case ToonParser.RULE_tabularHeaderLine -> header(contentStart);
+                        case ToonParser.RULE_inlineObjectFragment -> fields(contentStart);
+                        case ToonParser.RULE_inlineCells -> cells(contentStart);
+                        case ToonParser.RULE_value -> primitive(contentStart);
+                        default -> {
+                            // empty list item
+                        }
+                    }
+                    handler.endListItem();
+                    inListItem = false;
+                    lineCompleted();
+                }
+                default -> {
+                    // reported with its line
+                }
+            }
+        }
+
+        @Override
+        public void visitTerminal(final TerminalNode node) {
+            if (!indentation(node.getSymbol())) {
+                line.add(node.getSymbol());
+            }
+        }
+
+        @Override
+        public void visitErrorNode(final ErrorNode node) {
+            // tokens skipped by error recovery are not part of the line, but the indentation still nests
+            indentation(node.getSymbol());
+        }
+
+        /**
+         * Opens or closes a block for an INDENT or DEDENT token. A block is only reported once its first line is
+         * complete, so a strict read does not report the block of the line it stops at. The DEDENT tokens at the
+         * end of the input are left to the next fragment or {@link #closeBlocks(ToonHandler)}.
+         *
+         * @return whether the token is an indentation token
+         */
+        private boolean indentation(final Token token) {
+            if (token.getType() == ToonParser.INDENT) {
+                if (primedBlocks > 0) {
+                    primedBlocks--;
+                } else {
+                    push(token.getCharPositionInLine());
+                    pendingBlocks++;
+                }
+                return true;
+            }
+            if (token.getType() == ToonParser.DEDENT) {
+                if (token.getStartIndex() >= end) {
+                    return true;
+                }
+                blockDepth--;
+                if (pendingBlocks > 0) {
+                    pendingBlocks--;
+                } else {
+                    handler.endBlock();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private void push(final int width) {
+            if (blockDepth == blocks.length) {
+                blocks = Arrays.copyOf(blocks, blockDepth * 2);
+            }
+            blocks[blockDepth++] = width;
+        }
+
+        /**
+         * @return the width of the innermost of the given number of outer blocks, 0 for none
+         */
+        private int width(final int depth) {
+            return depth == 0 ? 0 : blocks[depth - 1];
+        }
+
+        private void startBlocks() {
+            for (; pendingBlocks > 0; pendingBlocks--) {
+                handler.startBlock();
+            }
+        }
+
+        @Override
+        public void syntaxError(final Recognizer<?, ?> recognizer, final Object offendingSymbol, final int line,
+                                final int charPositionInLine, final String msg, final RecognitionException e) {
+            if (!strict) {
+                handler.syntaxError(line, charPositionInLine);
+            }
+        }
+
+        private void lineCompleted() {
+            if (!line.isEmpty()) {
+                validEnd = line.getLast().getStopIndex() + 1;
+            }
+        }
+
+        private void primitive(final int from) {
+            if (from < line.size() && isValue(line.get(from).getType())) {
+                handler.primitive(line.get(from).getText());
+            }
+        }
+
+        /**
+         * key COLON value? ((COMMA | SEMI) key COLON value?)*
+         */
+        private void fields(final int from) {
+            int i = from;
+            while (i + 1 < line.size()) {
+                final Token key = line.get(i);
+                if (!isKey(key.getType()) || line.get(i + 1).getType() != ToonParser.COLON) {
+                    i++;
+                    continue;
+                }
+                i += 2;
+                final Token value = i < line.size() && isValue(line.get(i).getType()) ? line.get(i++) : null;
+                handler.objectField(key.getText(), value == null ? null : value.getText());
+            }
+        }
+
+        /**
+         * LBRACK NUMBER? delimiter? RBRACK field (delimiter field)* COLON?
+         */
+        private void header(final int from) {
+            int i = from;
+            if (i >= line.size() || line.get(i++).getType() != ToonParser.LBRACK) {
+                return;
+            }
+            int length = -1;
+            if (i < line.size() && line.get(i).getType() == ToonParser.NUMBER) {
+                try {
+                    length = Integer.parseInt(line.get(i).getText());
+                } catch (NumberFormatException ex) {
+                    // not a count, e.g. 1.5 or 1e3
+                }
+                i++;
+            }
+            char delimiter = ',';
+            if (i < line.size() && isDelimiter(line.get(i).getType())) {
+                delimiter = line.get(i++).getText().charAt(0);
+            }
+            if (i >= line.size() || line.get(i++).getType() != ToonParser.RBRACK) {
+                return;
+            }
+            texts.clear();
+            for (; i < line.size(); i++) {
+                final Token field = line.get(i);
+                if (field.getType() == ToonParser.IDENT || field.getType() == ToonParser.QUOTED_STRING) {
+                    texts.add(field.getText());
+                }
+            }
+            handler.arrayHeader(length, delimiter, texts);
+        }
+
+        /**
+         * cell (delimiter cell)*
+         */
+        private void cells(final int from) {
+            texts.clear();
+            for (int i = from; i < line.size(); i++) {
+                final Token cell = line.get(i);
+                if (cell.getType() == ToonParser.QUOTED_STRING || cell.getType() == ToonParser.UNQUOTED_CELL) {
+                    texts.add(cell.getText());
+                }
+            }
+            handler.row(texts);
+        }
+
+        private static boolean isKey(final int type) {
+            return type == ToonParser.IDENT || type == ToonParser.QUOTED_STRING;
+        }
+
+        private static boolean isValue(final int type) {
+            return switch (type) {
+                case ToonParser.QUOTED_STRING, ToonParser.NUMBER, ToonParser.BOOL, ToonParser.NULL,
+                     ToonParser.UNQUOTED_VALUE -> true;
+                default -> false;
+            };
+        }
+
+        private static boolean isDelimiter(final int type) {
+            return type == ToonParser.COMMA || type == ToonParser.PIPE || type == ToonParser.TAB;
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package de.papenhagen.toonrepair;
 
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for parsing TOON files with automatic error recovery and repair.
@@ -15,43 +24,155 @@ public class ToonRepair {
         throw new UnsupportedOperationException("Utility class cannot be instantiated");
     }
 
-    private static final String QUOTED_STRING_REGEX = "^\"(?:[^\"\\\\\\x00-\\x1F]|\\\\[\"\\\\/bfnrt])*\"$";
+    /**
+     * Size after which the streaming API cuts a chunk at the next top-level block.
+     */
+    static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * One reusable repair pipeline per thread.
+     */
+    private static final ThreadLocal<ToonRepairer> REPAIRER = ThreadLocal.withInitial(ToonRepairer::new);
+
+    /**
+     * One reusable TOON to JSON converter per thread.
+     */
+    private static final ThreadLocal<ToonJsonConverter> CONVERTER = ThreadLocal.withInitial(ToonJsonConverter::new);
 
     /**
      * Parses TOON input with automatic repair-on-error.
-     * This method attempts to parse the input multiple times, applying repairs
+     * Valid input is recognized by a fast validation pass and returned as is.
+     * Otherwise this method attempts to parse the input multiple times, applying repairs
      * between attempts if syntax errors are detected.
+     * The lexer and parser are reused across calls on the same thread, see {@link ToonRepairer}.
      *
      * @param input the TOON content to parse
-     * @throws IllegalStateException if repair does not converge within the allowed number of attempts
+     * @return the repaired TOON
      */
     public static String parse(final String input) {
-        String current = input.replaceAll(QUOTED_STRING_REGEX, "");
-
-        // Attempts parse with repair until convergence or limit
-        for (int attempt = 0; attempt < 3; attempt++) {
-            final ToonLexer lexer = new ToonLexer(CharStreams.fromString(current));
-            final CommonTokenStream tokens = new CommonTokenStream(lexer);
-            final ToonParser parser = new ToonParser(tokens);
-
-            final ToonRepairEngine repairEngine = new ToonRepairEngine();
-            parser.setErrorHandler(new ToonRepairErrorStrategy(repairEngine));
-
-            // Attempts parse and repair until convergence or failure
-            try {
-                parser.toonFile();
-                if (repairEngine.hasIssues()) {
-                    current = repairEngine.repair(current);
-                    continue;
-                }
-                return current;
-            } catch (RuntimeException ex) {
-                if (!repairEngine.hasIssues()) {
-                    throw ex;
-                }
-                current = repairEngine.repair(current);
+        return REPAIRER.get().repair(input);
+    }
+
+    /**
+     * Parses TOON input like {@link #parse(String)} and reports what was changed.
+     *
+     * @param input the TOON content to parse
+     * @return the repaired TOON together with the applied edits
+     */
+    public static RepairResult parseWithResult(final String input) {
+        return REPAIRER.get().repairWithResult(input);
+    }
+
+    /**
+     * Repairs TOON input and converts it to JSON in the same pass, see {@link ToonJsonConverter}.
+     *
+     * @param input the TOON content to convert
+     * @param out   the destination of the JSON
+     * @throws IOException if writing fails
+     */
+    public static void toJson(final CharSequence input, final Writer out) throws IOException {
+        CONVERTER.get().convert(input, out);
+    }
+
+    /**
+     * Repairs TOON input and converts it to JSON in the same pass, see {@link ToonJsonConverter}.
+     *
+     * @param input the TOON content to convert
+     * @return the JSON
+     */
+    public static String toJson(final String input) {
+        final StringWriter out = new StringWriter();
+        try {
+            toJson(input, out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // cannot happen for a StringWriter
+        }
+        return out.toString();
+    }
+
+    /**
+     * Repairs a batch of TOON snippets on all cores.
+     *
+     * @param inputs the TOON contents to repair
+     * @return the repaired TOON, in the order of the inputs
+     */
+    public static List<String> repairAll(final List<String> inputs) {
+        return inputs.parallelStream()
+                .map(ToonRepair::parse)
+                .toList();
+    }
+
+    /**
+     * Repairs a stream of TOON snippets on all cores.
+     * The returned stream is lazy and keeps the encounter order of the inputs.
+     *
+     * @param inputs the TOON contents to repair
+     * @return the repaired TOON
+     */
+    public static Stream<String> repairAll(final Stream<String> inputs) {
+        return inputs.parallel().map(ToonRepair::parse);
+    }
+
+    /**
+     * Repairs a TOON character stream and writes the repaired TOON as it goes.
+     * The input is processed in chunks of whole lines cut at top-level block boundaries, so memory stays
+     * bounded by the largest block instead of the size of the stream. Each chunk is repaired like {@link #parse(String)}.
+     *
+     * @param in  the TOON content to repair
+     * @param out the destination of the repaired TOON
+     * @throws IOException if reading or writing fails
+     */
+    public static void repair(final Reader in, final Writer out) throws IOException {
+        final ToonChunkReader chunks = new ToonChunkReader(in, STREAM_CHUNK_SIZE);
+        String chunk;
+        while ((chunk = chunks.nextChunk()) != null) {
+            out.write(parse(chunk));
+        }
+        out.flush();
+    }
+
+    /**
+     * Repairs a TOON file into another file without loading it onto the heap.
+     * The input is memory-mapped and cut into the same block-aligned chunks as {@link #repair(Reader, Writer)}.
+     * Chunks are validated by lexing the mapped bytes with the {@link FastToonLexer}; valid chunks are copied to
+     * the output with {@link java.nio.channels.FileChannel#transferTo}, so only broken chunks are decoded and
+     * repaired. Heap usage is bounded by the largest block, not by the size of the file.
+     *
+     * @param in  the TOON file to repair, UTF-8 or any other ASCII-compatible encoding
+     * @param out the file receiving the repaired TOON, created or truncated
+     * @throws IOException              if reading or writing fails
+     * @throws IllegalArgumentException if both paths denote the same file or a block exceeds 2 GiB
+     */
+    public static void repairFile(final Path in, final Path out) throws IOException {
+        final ToonRepairer repairer = new ToonRepairer(RepairOptions.defaults().withHandWrittenLexer(true));
+        MappedToonFile.repair(in, out, repairer, STREAM_CHUNK_SIZE);
+    }
+
+    /**
+     * Repairs large TOON input on all cores.
+     * The input is cut into the same block-aligned chunks as {@link #repair(Reader, Writer)}, the chunks are repaired
+     * concurrently on the common fork/join pool and stitched back together in order, so the output is identical
+     * to the streaming mode. TOON lines are repaired independently of each other, and a chunk ends before an
+     * unindented key, header or line after a blank line, so the output also equals {@link #parse(String)} of the
+     * whole input as long as no repair runs out of its attempt or time budget: the budgets apply per chunk, so
+     * a chunk may still be repaired where the whole document would already have given up, and vice versa.
+     *
+     * @param input the TOON content to repair
+     * @return the repaired TOON
+     */
+    public static String parseParallel(final String input) {
+        final List<String> chunks = new ArrayList<>();
+        try {
+            final ToonChunkReader chunkReader = new ToonChunkReader(new StringReader(input), STREAM_CHUNK_SIZE);
+            String chunk;
+            while ((chunk = chunkReader.nextChunk()) != null) {
+                chunks.add(chunk);
             }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // cannot happen for a StringReader
         }
-        return current;
+        return chunks.parallelStream()
+                .map(ToonRepair::parse)
+                .collect(Collectors.joining());
     }
 }
@@ -15,6 +15,36 @@ import java.util.List;
 public final class ToonRepairEngine {
 
     private final List<SyntaxIssue> issues = new ArrayList<>();
+    private final List<List<SyntaxIssue>> alternatives = new ArrayList<>();
+    private final RepairListener listener;
+    private final CandidateRanker ranker;
+
+    /**
+     * Creates a new ToonRepairEngine without telemetry.
+     */
+    public ToonRepairEngine() {
+        this(RepairListener.NONE);
+    }
+
+    /**
+     * Creates a new ToonRepairEngine.
+     *
+     * @param listener the listener notified of every registered issue
+     */
+    public ToonRepairEngine(final RepairListener listener) {
+        this(listener, null);
+    }
+
+    /**
+     * Creates a new ToonRepairEngine that optionally ranks alternative repairs of every error.
+     *
+     * @param listener the listener notified of every registered issue
+     * @param ranker   the ranker choosing between alternative repairs, {@code null} to take the first guess
+     */
+    ToonRepairEngine(final RepairListener listener, final CandidateRanker ranker) {
+        this.listener = listener;
+        this.ranker = ranker;
+    }
 
     /**
      * Registers a syntax error found during parsing.
@@ -24,7 +54,7 @@ public final class ToonRepairEngine {
      * @param ex     the recognition exception
      */
     public void registerSyntaxError(final Parser parser, final Token token, final RecognitionException ex) {
-        issues.add(SyntaxIssue.from(parser, token));
+        register(parser, token);
     }
 
     /**
@@ -34,7 +64,16 @@ public final class ToonRepairEngine {
      * @param token  the token where recovery happened
      */
     public void registerInlineRecovery(final Parser parser, final Token token) {
-        issues.add(SyntaxIssue.from(parser, token));
+        register(parser, token);
+    }
+
+    private void register(final Parser parser, final Token token) {
+        final SyntaxIssue issue = SyntaxIssue.from(parser, token);
+        issues.add(issue);
+        if (ranker != null) {
+            alternatives.add(SyntaxIssue.alternatives(parser, token, issue));
+        }
+        listener.issueRecorded(issue.kind());
     }
 
     /**
@@ -47,34 +86,80 @@ public final class ToonRepairEngine {
     }
 
     /**
-     * Applies all registered repairs to the provided source string.
-     * Repairs are applied from back to front to maintain index validity.
+     * @return the number of registered issues
+     */
+    public int issueCount() {
+        return issues.size();
+    }
+
+    /**
+     * @param target the list receiving the kinds of the registered issues, in the order they were registered
+     */
+    void issueKinds(final List<IssueKind> target) {
+        for (final SyntaxIssue issue : issues) {
+            target.add(issue.kind());
+        }
+    }
+
+    /**
+     * @return a copy of the registered issues, in the order they were registered
+     */
+    List<SyntaxIssue> issues() {
+        return List.copyOf(issues);
+    }
+
+    /**
+     * Drops the registered issues without collecting their edits, e.g. after an aborted parse.
+     */
+    void discardIssues() {
+        issues.clear();
+        alternatives.clear();
+    }
+
+    /**
+     * Collects the edits of all registered issues against the given source.
+     * Issues are visited from back to front, so that for overlapping edits the later issue in the
+     * document wins, and the registered issues are cleared afterwards. With a {@link CandidateRanker} every
+     * error is repaired by the best of its alternatives.
      *
-     * @param source the original source code
-     * @return the repaired source code
+     * @param source the source the issues were found in
+     * @return the accepted, non-overlapping edits
      */
-    public String repair(final String source) {
+    public EditBuffer collectEdits(final CharSequence source) {
+        try {
+            return collectEdits(source, ranker == null ? issues : ranker.rank(source, issues, alternatives));
+        } finally {
+            issues.clear(); // Clear issues after collecting, also when ranking ran out of time
+            alternatives.clear();
+        }
+    }
+
+    /**
+     * Collects the edits of the given issues against the given source, later issues winning on overlaps.
+     *
+     * @param source the source the issues were found in
+     * @param issues the issues to repair; the list is not modified
+     * @return the accepted, non-overlapping edits
+     */
+    static EditBuffer collectEdits(final CharSequence source, final List<SyntaxIssue> issues) {
         final List<SyntaxIssue> sortedIssues = new ArrayList<>(issues);
-        // Remove duplicates or overlapping issues to prevent double-applying repairs at same start index
-        final List<SyntaxIssue> uniqueIssues = new ArrayList<>();
-        int lastStart = -1;
-        
         sortedIssues.sort(Comparator.comparingInt(SyntaxIssue::getStartIndex).reversed());
-        
+
+        final EditBuffer edits = new EditBuffer();
         for (final SyntaxIssue issue : sortedIssues) {
-            // Only add if it doesn't overlap with the last added issue's range
-            if (issue.getStartIndex() != lastStart) {
-                // Heuristic: Prefer more specific issues if they start at the same position
-                uniqueIssues.add(issue);
-                lastStart = issue.getStartIndex();
-            }
+            issue.emit(source, edits);
         }
+        return edits;
+    }
 
-        String result = source;
-        for (final SyntaxIssue issue : uniqueIssues) {
-            result = issue.apply(result);
-        }
-        issues.clear(); // Clear issues after applying
-        return result;
+    /**
+     * Applies all registered repairs to the provided source string.
+     * All edits refer to the original source and are materialized in a single pass.
+     *
+     * @param source the original source code
+     * @return the repaired source code
+     */
+    public String repair(final String source) {
+        return collectEdits(source).applyTo(source);
     }
 }
@@ -1,4 +1,3 @@
-
 package de.papenhagen.toonrepair;
 
 import org.antlr.v4.runtime.DefaultErrorStrategy;
@@ -6,14 +5,37 @@ import org.antlr.v4.runtime.Parser;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Token;
 
+/**
+ * Error strategy of the repair parser: registers every error and inline recovery with the {@link ToonRepairEngine}
+ * and recovers like the default strategy.
+ * With a deadline set, the parse is aborted cooperatively once the deadline has passed: every inline recovery and
+ * every {@value #SYNC_CHECK_INTERVAL}th sync checks the clock, so even a huge broken input cannot keep a parse
+ * running long after its budget.
+ */
 public final class ToonRepairErrorStrategy extends DefaultErrorStrategy {
 
+    static final int SYNC_CHECK_INTERVAL = 64;
+
     private final ToonRepairEngine repairEngine;
+    private long started;
+    private long budgetNanos = Long.MAX_VALUE;
+    private int syncs;
 
     public ToonRepairErrorStrategy(final ToonRepairEngine repairEngine) {
         this.repairEngine = repairEngine;
     }
 
+    /**
+     * Sets the deadline checked during the following parses.
+     *
+     * @param started     the {@link System#nanoTime()} the budget started at
+     * @param budgetNanos the budget in nanoseconds, {@link Long#MAX_VALUE} for none
+     */
+    void setDeadline(final long started, final long budgetNanos) {
+        this.started = started;
+        this.budgetNanos = budgetNanos;
+    }
+
     @Override
     public void reportError(final Parser recognizer, final RecognitionException e) {
         repairEngine.registerSyntaxError(recognizer, e.getOffendingToken(), e);
@@ -22,6 +44,7 @@ public final class ToonRepairErrorStrategy extends DefaultErrorStrategy {
 
     @Override
     public Token recoverInline(final Parser recognizer) {
+        checkDeadline();
         final Token token = recognizer.getCurrentToken();
         repairEngine.registerInlineRecovery(recognizer, token);
         return super.recoverInline(recognizer);
@@ -29,7 +52,15 @@ public final class ToonRepairErrorStrategy extends DefaultErrorStrategy {
 
     @Override
     public void sync(Parser recognizer) {
-        // use default sync
+        if (++syncs % SYNC_CHECK_INTERVAL == 0) {
+            checkDeadline();
+        }
         super.sync(recognizer);
     }
+
+    private void checkDeadline() {
+        if (budgetNanos != Long.MAX_VALUE && System.nanoTime() - started >= budgetNanos) {
+            throw new DeadlineExceededException();
+        }
+    }
 }
@@ -0,0 +1,143 @@
+package de.papenhagen.toonrepair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Repairs TOON that arrives in fragments, e.g. token by token from a model API, and publishes the repaired lines as
+ * soon as they are complete.
+ * Fragments may end anywhere, also inside a token. A line is only lexed once its line break has arrived; the
+ * complete lines of a fragment are repaired together and published as one {@link RepairedChunk}, the rest is kept
+ * until the following fragments complete it. TOON lines parse on their own, so line-level errors like a missing
+ * colon or a broken array header are repaired in flight, and the end of the stream only adds its last line. Only a
+ * first line starting with a quote waits for the next line, as a document that is nothing but a quoted string is
+ * dropped.
+ * The complete lines of a fragment are tokenized at once, so memory is bounded by the largest fragment plus the
+ * longest line, and the buffers of the subscribers.
+ * <p>
+ * Backpressure is passed upstream: the next fragment is requested only after the previous one was published,
+ * and publishing blocks while a subscriber's buffer is full. A failing repair cancels the upstream subscription
+ * and completes the subscribers exceptionally.
+ */
+public final class ToonRepairProcessor extends SubmissionPublisher<RepairedChunk>
+        implements Flow.Processor<CharSequence, RepairedChunk> {
+
+    private final ToonRepairer repairer;
+    private final StringBuilder pending = new StringBuilder();
+    private Flow.Subscription subscription;
+    private int line = 1;
+    private boolean documentStart = true;
+
+    /**
+     * Creates a new ToonRepairProcessor with the {@linkplain RepairOptions#defaults() default options} that
+     * delivers on the common pool with the default buffer capacity.
+     */
+    public ToonRepairProcessor() {
+        this(RepairOptions.defaults(), ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * Creates a new ToonRepairProcessor.
+     *
+     * @param options           the repair configuration
+     * @param executor          the executor delivering the chunks to the subscribers
+     * @param maxBufferCapacity the number of chunks buffered per subscriber before publishing blocks
+     */
+    public ToonRepairProcessor(final RepairOptions options, final Executor executor, final int maxBufferCapacity) {
+        super(executor, maxBufferCapacity);
+        this.repairer = new ToonRepairer(options);
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(final CharSequence fragment) {
+        if (isClosed()) {
+            return;
+        }
+        // apart from an undecided first line, the buffered characters hold no line break, so only the new fragment
+        // can complete lines
+        final int start = pending.length();
+        pending.append(fragment);
+        int end = pending.length();
+        while (end > start && pending.charAt(end - 1) != '\n') {
+            end--;
+        }
+        if (end > start && !isUndecidedFirstLine(end) && !publish(end)) {
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (isClosed()) {
+            return;
+        }
+        if (!pending.isEmpty() && !publish(pending.length())) {
+            return;
+        }
+        close();
+    }
+
+    /**
+     * Checks whether the complete lines are only the first line of the document and it starts with a quote.
+     * A document that is nothing but a quoted string is dropped, so such a line is held back until a second line
+     * or the end of the stream shows whether it is the whole document.
+     *
+     * @param end the end of the complete lines
+     * @return {@code true} if the lines must not be published yet
+     */
+    private boolean isUndecidedFirstLine(final int end) {
+        return documentStart && pending.charAt(0) == '"' && pending.indexOf("\n") == end - 1;
+    }
+
+    /**
+     * Repairs and publishes the buffered lines up to the given end.
+     *
+     * @param end the end of the buffered characters to publish, after a line break or at the end of the stream
+     * @return {@code false} if the repair failed and the processor was closed
+     */
+    private boolean publish(final int end) {
+        final String lines = pending.substring(0, end);
+        pending.delete(0, end);
+        final RepairResult result;
+        try {
+            result = repairer.repairWithResult(lines, documentStart);
+        } catch (RuntimeException ex) {
+            subscription.cancel();
+            closeExceptionally(ex);
+            return false;
+        }
+        final List<RepairEdit> edits = new ArrayList<>(result.edits().size());
+        for (final RepairEdit edit : result.edits()) {
+            edits.add(new RepairEdit(edit.attempt(), edit.offset(), edit.length(), edit.replacement(), edit.kind(),
+                    edit.line() == 0 ? 0 : edit.line() + line - 1, edit.column()));
+        }
+        submit(new RepairedChunk(line, result.text(), result.status(), edits));
+        documentStart = false;
+        for (int i = 0; i < lines.length(); i++) {
+            if (lines.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,584 @@
+
+package de.papenhagen.toonrepair;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reusable TOON repair pipeline.
+ * Keeps one lexer, token stream, parser, repair engine and error strategy and resets them for every input
+ * instead of allocating new ones per call and attempt. Instances are not thread-safe; confine them to one
+ * thread or use {@link ToonRepair#parse(String)}, which keeps one instance per thread.
+ * Prediction uses the DFA caches of a {@link ToonDfaCache}, which is checked against its size limit every
+ * {@value #CACHE_CHECK_INTERVAL} repairs. Optionally the input is tokenized by the {@link FastToonLexer}.
+ * The repair loop stops at a fixed point, after an attempt budget scaled by the issues of the first attempt
+ * (at most {@link RepairOptions#maxAttempts()}) or when the {@link RepairOptions#timeBudget()} is used up,
+ * and reports which of these happened as a {@link RepairStatus}. The time budget is also checked by the
+ * {@link ToonRepairErrorStrategy} while parsing, so one long parse cannot overrun it.
+ * With {@linkplain RepairOptions#withLineMemoization(boolean) line memoization} the first attempt repairs the
+ * input line by line and repeats the repair of a line for later lines of the same token shape.
+ * With {@linkplain RepairOptions#withPartialReparse(boolean) partial re-parsing} later attempts only parse the lines
+ * touched by the previous round's edits.
+ * After every call the pipeline is reset to the empty text, so an idle instance does not keep the last input alive.
+ */
+public final class ToonRepairer {
+
+    static final int CACHE_CHECK_INTERVAL = 64;
+
+    private final ToonLexer validationLexer = new ToonLexer(null);
+    private final CommonTokenStream validationTokens = new CommonTokenStream(validationLexer);
+    private final ToonParser validationParser = new ToonParser(validationTokens);
+
+    private final ToonLexer lexer = new ToonLexer(null);
+    private final CommonTokenStream tokens = new CommonTokenStream(lexer);
+    private final ToonParser parser = new ToonParser(tokens);
+    private final ToonRepairEngine repairEngine;
+    private final CandidateRanker ranker;
+    private final ToonRepairErrorStrategy errorStrategy;
+
+    // one hand-written lexer per token stream, as the tokens of a stream read from the arrays of its lexer
+    private final FastToonTokenSource validationFastTokens;
+    private final FastToonTokenSource fastTokens;
+
+    private final ToonDfaCache dfaCache;
+    private final RepairListener listener;
+    private final int maxAttempts;
+    private final long timeBudgetNanos;
+    private final RepairCache cache;
+    private final boolean memoizeLines;
+    private final boolean partialReparse;
+    private int[] boundaries = new int[32];
+    private final List<IssueKind> rangeIssues = new ArrayList<>();
+    private Object boundGeneration;
+    private int roundIssues;
+    private int repairsSinceCacheCheck;
+
+    /**
+     * Creates a new ToonRepairer with the {@linkplain RepairOptions#defaults() default options}.
+     */
+    public ToonRepairer() {
+        this(RepairOptions.defaults());
+    }
+
+    /**
+     * Creates a new ToonRepairer.
+     *
+     * @param options the repair configuration
+     */
+    public ToonRepairer(final RepairOptions options) {
+        this.dfaCache = options.dfaCache();
+        this.listener = options.listener();
+        this.maxAttempts = options.maxAttempts();
+        this.timeBudgetNanos = options.timeBudget().toNanos();
+        this.cache = options.cache();
+        this.memoizeLines = options.memoizeLines();
+        this.partialReparse = options.partialReparse();
+        this.ranker = options.rankCandidates() ? new CandidateRanker(dfaCache, options.handWrittenLexer()) : null;
+        this.repairEngine = new ToonRepairEngine(listener, ranker);
+        this.validationFastTokens = options.handWrittenLexer() ? new FastToonLexer("").tokenSource() : null;
+        this.fastTokens = options.handWrittenLexer() ? new FastToonLexer("").tokenSource() : null;
+        validationLexer.removeErrorListeners();
+        validationParser.removeErrorListeners();
+        validationParser.setErrorHandler(new BailErrorStrategy());
+        validationParser.setBuildParseTree(false);
+        validationParser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+        this.errorStrategy = new ToonRepairErrorStrategy(repairEngine);
+        // the error strategy reports every error to the repair engine; nothing is printed to the console
+        lexer.removeErrorListeners();
+        parser.removeErrorListeners();
+        parser.setErrorHandler(errorStrategy);
+        parser.setBuildParseTree(false);
+    }
+
+    /**
+     * Parses TOON input with automatic repair-on-error.
+     * Valid input is recognized by a fast validation pass and returned as is.
+     * Otherwise this method attempts to parse the input multiple times, applying repairs
+     * between attempts if syntax errors are detected. With {@linkplain RepairOptions#withPartialReparse(boolean)
+     * partial re-parsing} only the first attempt parses the whole document; later attempts re-lex and re-parse
+     * just the lines touched by the previous round's edits.
+     *
+     * @param input the TOON content to parse
+     * @return the repaired TOON
+     */
+    public String repair(final String input) {
+        return repairWithResult(input).text();
+    }
+
+    /**
+     * Repairs TOON input like {@link #repair(String)} and reports the applied edits.
+     * The edits are recorded while the issues are turned into edits, so this costs no more than {@link #repair(String)}.
+     * With a {@link RepairCache} configured, the result of an input seen before is returned from the cache without
+     * lexing or parsing and without notifying the listener.
+     *
+     * @param input the TOON content to parse
+     * @return the repaired TOON with the applied edits, the number of attempts and how the repair ended
+     */
+    public RepairResult repairWithResult(final String input) {
+        return repairWithResult(input, true, timeBudgetNanos);
+    }
+
+    /**
+     * Repairs TOON input like {@link #repairWithResult(String)}, but within the given time budget instead of the
+     * configured one, e.g. the time left until the deadline of a request. Besides between attempts, the budget is
+     * checked while parsing, so a parse is aborted soon after the budget is used up; the result then holds the text
+     * of the last completed attempt.
+     *
+     * @param input      the TOON content to parse
+     * @param timeBudget the time after which the repair stops
+     * @return the repaired TOON with the applied edits, the number of attempts and how the repair ended
+     */
+    public RepairResult repairWithResult(final String input, final Duration timeBudget) {
+        return repairWithResult(input, true, timeBudget.isNegative() ? 0 : timeBudget.toNanos());
+    }
+
+    /**
+     * Repairs TOON input that is either a whole document or the lines following earlier lines of a document.
+     * Only a whole document that is nothing but a quoted string is dropped; later lines are never dropped that way,
+     * and as their result depends on this, they bypass the cache.
+     *
+     * @param input         the TOON content to parse
+     * @param documentStart whether the input starts a document
+     * @return the repaired TOON with the applied edits, the number of attempts and how the repair ended
+     */
+    RepairResult repairWithResult(final String input, final boolean documentStart) {
+        return repairWithResult(input, documentStart, timeBudgetNanos);
+    }
+
+    private RepairResult repairWithResult(final String input, final boolean documentStart, final long budgetNanos) {
+        final RepairCache cache = documentStart ? this.cache : null;
+        if (cache != null) {
+            final RepairResult cached = cache.get(input);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final RepairResult result;
+        try {
+            result = repair(input, documentStart, budgetNanos);
+        } finally {
+            release();
+        }
+        if (cache != null) {
+            cache.put(input, result);
+        }
+        return result;
+    }
+
+    private RepairResult repair(final String input, final boolean documentStart, final long budgetNanos) {
+        final RepairEvent event = RepairEvent.beginIfEnabled();
+        final long started = System.nanoTime();
+        errorStrategy.setDeadline(started, budgetNanos);
+        if (ranker != null) {
+            ranker.setDeadline(started, budgetNanos);
+        }
+        bindDfaCache();
+        String current = input;
+        final List<RepairEdit> applied = new ArrayList<>();
+
+        // Fast path: most input is already valid and needs no error recovery at all
+        tokenize(input, validationLexer, validationFastTokens, validationTokens);
+        final int quoted = documentStart ? loneQuotedStringLength() : 0;
+        RepairStatus status;
+        if (quoted > 0) {
+            // a document that is nothing but a JSON-style string is dropped, leaving at most its line break
+            current = input.substring(quoted);
+            applied.add(new RepairEdit(1, 0, quoted, "", IssueKind.UNEXPECTED_TOKEN, 1, 0));
+            listener.issueRecorded(IssueKind.UNEXPECTED_TOKEN);
+            status = RepairStatus.REPAIRED;
+        } else {
+            status = parseValidationTokens() ? RepairStatus.VALID : null;
+        }
+        listener.phaseCompleted(RepairPhase.VALIDATE, System.nanoTime() - started);
+
+        // Attempts parse with repair until a fixed point or a budget is reached; dropping the string was the first
+        int attempts = quoted > 0 ? 1 : 0;
+        int attemptBudget = maxAttempts;
+        List<LineRange> dirty = List.of(new LineRange(0, current.length()));
+        while (status == null) {
+            if (attempts >= attemptBudget) {
+                // the last attempt may well have fixed everything
+                status = validate(current) ? RepairStatus.REPAIRED : RepairStatus.ATTEMPTS_EXHAUSTED;
+                break;
+            }
+            if (System.nanoTime() - started >= budgetNanos) {
+                status = RepairStatus.TIME_BUDGET_EXCEEDED;
+                break;
+            }
+            attempts++;
+            roundIssues = 0;
+            final EditBuffer edits;
+            try {
+                edits = attempts == 1 && memoizeLines ? repairByLineShape(current) : repairLines(current, dirty);
+            } catch (DeadlineExceededException ex) {
+                status = RepairStatus.TIME_BUDGET_EXCEEDED;
+                break;
+            }
+            if (attempts == 1) {
+                attemptBudget = attemptBudget(roundIssues);
+            }
+            if (edits.isEmpty()) {
+                // a re-parse of the touched lines alone does not see errors left on the other lines, and an
+                // unrepairable error leaves no edits either
+                status = validate(current) ? RepairStatus.REPAIRED : RepairStatus.FIXED_POINT;
+                break;
+            }
+            final long applyStarted = System.nanoTime();
+            final String repaired = edits.applyTo(current);
+            applied.addAll(edits.repairEdits(attempts));
+            dirty = partialReparse ? touchedLines(repaired, edits) : List.of(new LineRange(0, repaired.length()));
+            current = repaired;
+            listener.phaseCompleted(RepairPhase.APPLY, System.nanoTime() - applyStarted);
+        }
+
+        listener.repairCompleted(input.length(), attempts, status, System.nanoTime() - started);
+        if (event != null && event.shouldCommit()) {
+            event.inputLength = input.length();
+            event.attempts = attempts;
+            event.status = status.name();
+            event.commit();
+        }
+        return new RepairResult(current, applied, attempts, status);
+    }
+
+    /**
+     * Checks whether the input parses without any syntax error.
+     * Runs the parser in SLL mode without building a parse tree and bails out on the first syntax error.
+     * A {@code false} result only means the fast path gave up; SLL prediction may reject input
+     * that the full parser accepts, which the repair loop then handles.
+     *
+     * @param input the TOON content to check
+     * @return {@code true} if the input is valid TOON
+     */
+    public boolean isValid(final CharSequence input) {
+        bindDfaCache();
+        try {
+            return validate(input);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Parses the empty text with both parsers, so that no lexer, token stream, parser or prediction state keeps the
+     * last input or its tokens reachable while this instance waits for the next one, e.g. in a thread-local.
+     */
+    private void release() {
+        errorStrategy.setDeadline(0, Long.MAX_VALUE);
+        if (ranker != null) {
+            ranker.setDeadline(0, Long.MAX_VALUE);
+        }
+        if (fastTokens != null) {
+            validationFastTokens.release();
+            fastTokens.release();
+        }
+        validate("");
+        tokenize("", lexer, fastTokens, tokens);
+        parser.setTokenStream(tokens);
+        parser.toonFile();
+    }
+
+    private boolean validate(final CharSequence input) {
+        tokenize(input, validationLexer, validationFastTokens, validationTokens);
+        return parseValidationTokens();
+    }
+
+    private boolean parseValidationTokens() {
+        validationParser.setTokenStream(validationTokens);
+
+        try {
+            validationParser.toonFile();
+            return true;
+        } catch (ParseCancellationException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether the validation tokens are a single quoted string at the very start of the input, optionally
+     * followed by one line break, and whether the string only uses the escapes and characters JSON allows.
+     * Looks at no more than three tokens and the characters of the string.
+     *
+     * @return the length of the quoted string, 0 if the input is anything else
+     */
+    private int loneQuotedStringLength() {
+        final Token string = validationTokens.LT(1);
+        if (string.getType() != ToonLexer.QUOTED_STRING || string.getStartIndex() != 0) {
+            return 0;
+        }
+        int end = string.getStopIndex() + 1;
+        Token next = validationTokens.LT(2);
+        if (next.getType() == ToonLexer.NEWLINE && next.getStartIndex() == end) {
+            end = next.getStopIndex() + 1;
+            next = validationTokens.LT(3);
+        }
+        // skipped whitespace or dropped characters would show as a gap before EOF
+        if (next.getType() != Token.EOF || next.getStartIndex() != end) {
+            return 0;
+        }
+
+        final String text = string.getText();
+        for (int i = 1; i < text.length() - 1; i++) {
+            final char c = text.charAt(i);
+            if (c < 0x20) {
+                return 0;
+            }
+            if (c == '\\') {
+                // unlike the lexer, no single quote or unicode escapes
+                if ("\"\\/bfnrt".indexOf(text.charAt(++i)) < 0) {
+                    return 0;
+                }
+            }
+        }
+        return text.length();
+    }
+
+    /**
+     * Enforces the cache size limit from time to time and rebinds the recognizers after the cache was replaced.
+     */
+    private void bindDfaCache() {
+        if (++repairsSinceCacheCheck >= CACHE_CHECK_INTERVAL) {
+            repairsSinceCacheCheck = 0;
+            dfaCache.trimToMaxSize();
+        }
+        final Object generation = dfaCache.generation();
+        if (generation != boundGeneration) {
+            dfaCache.bind(validationLexer);
+            dfaCache.bind(validationParser);
+            dfaCache.bind(lexer);
+            dfaCache.bind(parser);
+            boundGeneration = generation;
+        }
+    }
+
+    /**
+     * Repairs the given line ranges of the text.
+     *
+     * @param text  the text to repair
+     * @param dirty the line ranges to parse, in source order
+     * @return the edits relative to the start of the text
+     */
+    private EditBuffer repairLines(final String text, final List<LineRange> dirty) {
+        final EditBuffer edits = new EditBuffer();
+        int line = 1;
+        int lineStart = 0;
+        for (final LineRange range : dirty) {
+            line += countLines(text, lineStart, range.start());
+            lineStart = range.start();
+            edits.addAll(repairRange(text.substring(range.start(), range.end())), range.start(), line - 1);
+        }
+        return edits;
+    }
+
+    /**
+     * Parses a range of whole lines and collects the edits repairing it.
+     * TOON is line-oriented and no token spans a line break, so a range of lines parses on its own.
+     *
+     * @param fragment the lines to parse
+     * @return the edits relative to the start of the fragment
+     */
+    private EditBuffer repairRange(final String fragment) {
+        final long started = System.nanoTime();
+        tokenize(fragment, lexer, fastTokens, tokens);
+        tokens.fill();
+        final long lexed = System.nanoTime();
+        listener.phaseCompleted(RepairPhase.LEX, lexed - started);
+
+        parser.setTokenStream(tokens);
+        try {
+            parser.toonFile();
+        } catch (DeadlineExceededException ex) {
+            repairEngine.discardIssues();
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (!repairEngine.hasIssues()) {
+                throw ex;
+            }
+        }
+        final long parsed = System.nanoTime();
+        listener.phaseCompleted(RepairPhase.PARSE, parsed - lexed);
+
+        roundIssues += repairEngine.issueCount();
+        if (memoizeLines) {
+            rangeIssues.clear();
+            repairEngine.issueKinds(rangeIssues);
+        }
+        final EditBuffer edits = repairEngine.collectEdits(fragment);
+        listener.phaseCompleted(RepairPhase.APPLY, System.nanoTime() - parsed);
+        return edits;
+    }
+
+    /**
+     * Repairs the input line by line and reuses the repair of a line for the later lines of the same shape.
+     * The shape of a line is the sequence of its token types on the default channel, with a mark wherever
+     * characters lie between two tokens. Lines parse on their own, so the parser only decides by the shape whether
+     * a line is valid. A shape only gets a template once its first two lines were repaired with the same edits and
+     * none of them reads the token text, see {@link LineTemplate}; otherwise every line of the shape is parsed.
+     * Expects the validation tokens to be those of the input.
+     *
+     * @param text the input
+     * @return the edits of the first attempt
+     */
+    private EditBuffer repairByLineShape(final String text) {
+        validationTokens.fill();
+        final List<Token> all = validationTokens.getTokens();
+        final Map<String, LineTemplate> candidates = new HashMap<>();
+        final Map<String, LineTemplate> confirmed = new HashMap<>();
+        final Set<String> unusable = new HashSet<>();
+        final EditBuffer edits = new EditBuffer();
+        final StringBuilder shape = new StringBuilder();
+        int line = 1;
+        int lineStart = 0;
+        int count = 0;
+        for (final Token token : all) {
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            final int type = token.getType();
+            final int start = type == Token.EOF ? text.length() : token.getStartIndex();
+            if (type == Token.EOF && start == lineStart) {
+                break;
+            }
+            if (count == 0) {
+                addBoundary(count++, 0);
+            }
+            if (start - lineStart != boundaries[count - 1]) {
+                shape.append(' ');
+            }
+            shape.append((char) (type + 1));
+            final int end = type == Token.EOF ? start : token.getStopIndex() + 1;
+            addBoundary(count++, start - lineStart);
+            addBoundary(count++, end - lineStart);
+            if (type != ToonLexer.NEWLINE && type != Token.EOF) {
+                continue;
+            }
+
+            final String key = shape.toString();
+            final LineTemplate template = confirmed.get(key);
+            if (template != null) {
+                template.applyTo(edits, lineStart, line, boundaries);
+                template.issues().forEach(listener::issueRecorded);
+                roundIssues += template.issues().size();
+            } else {
+                final EditBuffer lineEdits = repairRange(text.substring(lineStart, end));
+                edits.addAll(lineEdits, lineStart, line - 1);
+                if (!unusable.contains(key)) {
+                    final LineTemplate repaired = LineTemplate.of(lineEdits.repairEdits(1), boundaries, count,
+                            rangeIssues);
+                    final LineTemplate candidate = candidates.remove(key);
+                    if (repaired == null || candidate != null && !candidate.equals(repaired)) {
+                        unusable.add(key);
+                    } else if (candidate == null) {
+                        candidates.put(key, repaired);
+                    } else {
+                        confirmed.put(key, repaired);
+                    }
+                }
+            }
+            line++;
+            lineStart = end;
+            count = 0;
+            shape.setLength(0);
+        }
+        return edits;
+    }
+
+    private void addBoundary(final int index, final int offset) {
+        if (index == boundaries.length) {
+            boundaries = Arrays.copyOf(boundaries, index * 2);
+        }
+        boundaries[index] = offset;
+    }
+
+    /**
+     * Every attempt that changes the text repairs at least one issue, so a document needs at most one attempt
+     * per issue of the first attempt, plus one that finds nothing left to repair.
+     *
+     * @param issues the number of issues found by the first attempt
+     * @return the number of attempts granted to the repair
+     */
+    private int attemptBudget(final int issues) {
+        return (int) Math.min(maxAttempts, issues + 1L);
+    }
+
+    /**
+     * Points the token stream at the tokens of the given text, produced by the configured lexer.
+     *
+     * @param text      the text to tokenize
+     * @param generated the generated lexer of the token stream
+     * @param fast      the hand-written lexer of the token stream, {@code null} to use the generated one
+     * @param stream    the token stream to reset
+     */
+    private static void tokenize(final CharSequence text, final ToonLexer generated, final FastToonTokenSource fast,
+                                 final CommonTokenStream stream) {
+        if (fast != null) {
+            fast.reset(text);
+            stream.setTokenSource(fast);
+        } else {
+            generated.setInputStream(CharStreams.fromString(text.toString()));
+            stream.setTokenSource(generated);
+        }
+    }
+
+    /**
+     * Maps the applied edits to the merged line ranges they touch in the repaired text.
+     *
+     * @param repaired the text after applying the edits
+     * @param edits    the applied edits, with offsets in the text before
+     * @return the touched line ranges in source order
+     */
+    private static List<LineRange> touchedLines(final String repaired, final EditBuffer edits) {
+        final List<LineRange> ranges = new ArrayList<>();
+        int shift = 0;
+        for (final TextEdit edit : edits.edits()) {
+            final int editStart = edit.offset() + shift;
+            final int editEnd = editStart + edit.replacement().length();
+            shift += edit.replacement().length() - edit.length();
+
+            final int start = repaired.lastIndexOf('\n', editStart - 1) + 1;
+            final int newline = repaired.indexOf('\n', editEnd);
+            final int end = newline < 0 ? repaired.length() : newline + 1;
+
+            final LineRange last = ranges.isEmpty() ? null : ranges.getLast();
+            if (last != null && start <= last.end()) {
+                ranges.set(ranges.size() - 1, new LineRange(last.start(), Math.max(end, last.end())));
+            } else {
+                ranges.add(new LineRange(start, end));
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the number of line breaks in {@code text} between {@code from} and {@code to}
+     */
+    private static int countLines(final String text, final int from, final int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * A range of whole lines, from the first character of a line to after its line break.
+     */
+    private record LineRange(int start, int end) {
+    }
+}
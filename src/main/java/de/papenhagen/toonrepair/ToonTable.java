@@ -0,0 +1,272 @@
+package de.papenhagen.toonrepair;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A tabular block read by {@link ToonTableReader}: the header fields and one column per field.
+ * Cells are stored by column in primitive arrays, typed per cell: integers in a {@code long[]}, decimals in a
+ * {@code double[]}, booleans in a {@link BitSet}, and only string cells as objects.
+ * The edits repair the block in the source the table was read from, see {@link #edits()}.
+ */
+public final class ToonTable {
+
+    /**
+     * The type of a cell.
+     */
+    public enum CellType {
+        NULL,
+        BOOL,
+        LONG,
+        DOUBLE,
+        STRING
+    }
+
+    private final List<String> fields;
+    private final char delimiter;
+    private final int declaredLength;
+    private final Column[] columns;
+    private final EditBuffer edits = new EditBuffer();
+    private int rowCount;
+    private int end;
+
+    /**
+     * Creates a new ToonTable.
+     *
+     * @param fields         the field names of the header
+     * @param delimiter      the delimiter of the header
+     * @param declaredLength the row count declared in the header, -1 if absent
+     */
+    ToonTable(final List<String> fields, final char delimiter, final int declaredLength) {
+        this.fields = List.copyOf(fields);
+        this.delimiter = delimiter;
+        this.declaredLength = declaredLength;
+        this.columns = new Column[fields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column();
+        }
+    }
+
+    /**
+     * @return the field names of the header
+     */
+    public List<String> fields() {
+        return fields;
+    }
+
+    /**
+     * @return the delimiter of the header, {@code ','} if it declares none
+     */
+    public char delimiter() {
+        return delimiter;
+    }
+
+    /**
+     * @return the row count declared in the header, -1 if it declares none
+     */
+    public int declaredLength() {
+        return declaredLength;
+    }
+
+    /**
+     * @return the number of rows read
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the offset in the source after the last row of the table
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * The edits repairing the table in its source: rows in the wrong delimiter, rows with too few cells (padded
+     * with {@code null}) or too many (cut at the header width), and a declared length that does not match the rows.
+     *
+     * @return the edits, relative to the source the table was read from
+     */
+    public EditBuffer edits() {
+        return edits;
+    }
+
+    /**
+     * @param index the index of the field
+     * @return the column of the field
+     */
+    public Column column(final int index) {
+        return columns[Objects.checkIndex(index, columns.length)];
+    }
+
+    /**
+     * @param field the name of the field
+     * @return the column of the field
+     * @throws IllegalArgumentException if the header has no such field
+     */
+    public Column column(final String field) {
+        final int index = fields.indexOf(field);
+        if (index < 0) {
+            throw new IllegalArgumentException("No such field: " + field);
+        }
+        return columns[index];
+    }
+
+    void rowAdded(final int end) {
+        this.rowCount++;
+        this.end = end;
+    }
+
+    void ended(final int end) {
+        this.end = end;
+    }
+
+    /**
+     * The cells of one field, in row order.
+     */
+    public static final class Column {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private static final CellType[] TYPES = CellType.values();
+
+        private byte[] types = new byte[INITIAL_CAPACITY];
+        private long[] longs = new long[INITIAL_CAPACITY];
+        private double[] doubles;
+        private String[] strings;
+        private final BitSet booleans = new BitSet();
+        private int size;
+
+        private Column() {
+        }
+
+        /**
+         * @return the number of cells
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param row the row index
+         * @return the type of the cell
+         */
+        public CellType type(final int row) {
+            return TYPES[types[Objects.checkIndex(row, size)]];
+        }
+
+        /**
+         * @param row the row index
+         * @return whether the cell is {@code null}
+         */
+        public boolean isNull(final int row) {
+            return type(row) == CellType.NULL;
+        }
+
+        /**
+         * @param row the row index
+         * @return the value of an integer cell
+         * @throws IllegalStateException if the cell is not an integer
+         */
+        public long getLong(final int row) {
+            expect(row, CellType.LONG);
+            return longs[row];
+        }
+
+        /**
+         * @param row the row index
+         * @return the value of a decimal or integer cell
+         * @throws IllegalStateException if the cell is not a number
+         */
+        public double getDouble(final int row) {
+            return switch (type(row)) {
+                case LONG -> longs[row];
+                case DOUBLE -> doubles[row];
+                default -> throw new IllegalStateException("Cell " + row + " is " + type(row) + ", not a number");
+            };
+        }
+
+        /**
+         * @param row the row index
+         * @return the value of a boolean cell
+         * @throws IllegalStateException if the cell is not a boolean
+         */
+        public boolean getBoolean(final int row) {
+            expect(row, CellType.BOOL);
+            return booleans.get(row);
+        }
+
+        /**
+         * @param row the row index
+         * @return the unescaped value of a string cell
+         * @throws IllegalStateException if the cell is not a string
+         */
+        public String getString(final int row) {
+            expect(row, CellType.STRING);
+            return strings[row];
+        }
+
+        void addNull() {
+            add(CellType.NULL);
+        }
+
+        void addBoolean(final boolean value) {
+            booleans.set(size, value);
+            add(CellType.BOOL);
+        }
+
+        void addLong(final long value) {
+            ensureCapacity();
+            longs[size] = value;
+            add(CellType.LONG);
+        }
+
+        void addDouble(final double value) {
+            ensureCapacity();
+            if (doubles == null) {
+                doubles = new double[types.length];
+            }
+            doubles[size] = value;
+            add(CellType.DOUBLE);
+        }
+
+        void addString(final String value) {
+            ensureCapacity();
+            if (strings == null) {
+                strings = new String[types.length];
+            }
+            strings[size] = value;
+            add(CellType.STRING);
+        }
+
+        private void add(final CellType type) {
+            ensureCapacity();
+            types[size++] = (byte) type.ordinal();
+        }
+
+        private void ensureCapacity() {
+            if (size < types.length) {
+                return;
+            }
+            final int capacity = types.length * 2;
+            types = Arrays.copyOf(types, capacity);
+            longs = Arrays.copyOf(longs, capacity);
+            if (doubles != null) {
+                doubles = Arrays.copyOf(doubles, capacity);
+            }
+            if (strings != null) {
+                strings = Arrays.copyOf(strings, capacity);
+            }
+        }
+
+        private void expect(final int row, final CellType expected) {
+            final CellType actual = type(row);
+            if (actual != expected) {
+                throw new IllegalStateException("Cell " + row + " is " + actual + ", not " + expected);
+            }
+        }
+    }
+}
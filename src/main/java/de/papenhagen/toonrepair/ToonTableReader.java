@@ -0,0 +1,453 @@
+package de.papenhagen.toonrepair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fast path for tabular blocks: reads a header line and its rows straight from the characters into a
+ * {@link ToonTable}, without tokens, parse tree or a string per cell.
+ * The header is {@code key?[N<delim>?] f1<delim>f2 :}, optionally with the fields in braces as in
+ * {@code [N,]{f1,f2}:}. Rows follow up to the first blank line, comment, header, list item or line that has a
+ * colon before its first delimiter. Every row is checked against the header and repaired while it is read:
+ * <ul>
+ *     <li>a row that only matches the header width when split at another delimiter has its delimiters replaced,</li>
+ *     <li>a short row is padded with {@code null} cells,</li>
+ *     <li>a long row is cut after the last field,</li>
+ *     <li>a declared length that does not match the number of rows is corrected.</li>
+ * </ul>
+ * Unquoted cells are typed like TOON primitives: {@code true}, {@code false}, {@code null}, integers and decimals;
+ * anything else, including numbers with leading zeros, is a string.
+ * Instances are reusable but not thread-safe.
+ */
+public final class ToonTableReader {
+
+    private static final String DELIMITERS = ",|\t";
+
+    /**
+     * Powers of ten that are exact doubles, for the fast path of decimal parsing.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Significant digits a {@code long} mantissa always holds exactly as a double.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private CharSequence text;
+    private int[] cellStarts = new int[16];
+    private int[] cellEnds = new int[16];
+    private int lengthStart;
+    private int lengthEnd;
+
+    /**
+     * Reads the tabular block whose header line starts at the given offset.
+     *
+     * @param toon the TOON source
+     * @param from the offset of the header line
+     * @return the table, with the edits repairing it
+     * @throws IllegalArgumentException if the line at {@code from} is not a tabular header
+     */
+    public ToonTable read(final CharSequence toon, final int from) {
+        this.text = toon;
+        try {
+            final ToonTable table = readHeader(from);
+            int position = lineEnd(from) + 1;
+            table.ended(Math.min(position, toon.length()));
+            while (position < toon.length()) {
+                final int lineEnd = lineEnd(position);
+                int contentEnd = lineEnd;
+                if (contentEnd > position && toon.charAt(contentEnd - 1) == '\r') {
+                    contentEnd--;
+                }
+                final int start = skipSpaces(position, contentEnd);
+                if (!isRow(start, contentEnd)) {
+                    break;
+                }
+                readRow(table, start, contentEnd);
+                position = lineEnd + 1;
+                table.rowAdded(Math.min(position, toon.length()));
+            }
+            if (table.declaredLength() >= 0 && table.declaredLength() != table.rowCount()) {
+                table.edits().add(new TextEdit(lengthStart, lengthEnd - lengthStart,
+                        Integer.toString(table.rowCount())));
+            }
+            return table;
+        } finally {
+            this.text = null;
+        }
+    }
+
+    private ToonTable readHeader(final int from) {
+        final int end = lineEnd(from);
+        int i = from;
+        while (i < end && text.charAt(i) != '[') {
+            i++;
+        }
+        if (i == end) {
+            throw new IllegalArgumentException("No tabular header at offset " + from);
+        }
+        i = skipSpaces(i + 1, end);
+        lengthStart = i;
+        int declaredLength = 0;
+        while (i < end && isDigit(text.charAt(i)) && declaredLength < Integer.MAX_VALUE / 10) {
+            declaredLength = declaredLength * 10 + text.charAt(i++) - '0';
+        }
+        lengthEnd = i;
+        if (lengthEnd == lengthStart) {
+            declaredLength = -1;
+        }
+        i = skipSpaces(i, end);
+        char delimiter = ',';
+        if (i < end && DELIMITERS.indexOf(text.charAt(i)) >= 0) {
+            delimiter = text.charAt(i);
+            i = skipSpaces(i + 1, end);
+        }
+        if (i == end || text.charAt(i) != ']') {
+            throw new IllegalArgumentException("No tabular header at offset " + from);
+        }
+        final List<String> fields = readFields(i + 1, end);
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Tabular header without fields at offset " + from);
+        }
+        return new ToonTable(fields, delimiter, declaredLength);
+    }
+
+    /**
+     * Reads the fields after the closing bracket, up to the closing brace, colon or end of the line.
+     */
+    private List<String> readFields(final int from, final int end) {
+        final List<String> fields = new ArrayList<>();
+        int i = skipSpaces(from, end);
+        if (i < end && text.charAt(i) == '{') {
+            i++;
+        }
+        int fieldStart = i;
+        boolean quoted = false;
+        for (; i <= end; i++) {
+            final char c = i < end ? text.charAt(i) : '\n';
+            if (quoted) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (DELIMITERS.indexOf(c) >= 0 || c == '}' || c == ':' || c == '\r' || c == '\n') {
+                final int start = skipSpaces(fieldStart, i);
+                final int stop = trimSpaces(start, i);
+                if (stop > start) {
+                    fields.add(text.charAt(start) == '"' ? unquote(start, stop) : text.subSequence(start, stop)
+                            .toString());
+                }
+                if (DELIMITERS.indexOf(c) < 0) {
+                    break;
+                }
+                fieldStart = i + 1;
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * A row is any line with a cell before the first unquoted colon, i.e. no colon or a delimiter first.
+     */
+    private boolean isRow(final int start, final int end) {
+        if (start == end) {
+            return false;
+        }
+        final char first = text.charAt(start);
+        if (first == '#' || first == '[' || (first == '-' && start + 1 < end && text.charAt(start + 1) == ' ')) {
+            return false;
+        }
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (quoted) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (DELIMITERS.indexOf(c) >= 0) {
+                return true;
+            } else if (c == ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readRow(final ToonTable table, final int start, final int end) {
+        final int width = table.fields().size();
+        final char delimiter = table.delimiter();
+        int cells = split(start, end, delimiter);
+        if (cells != width && cells == 1) {
+            for (int d = 0; d < DELIMITERS.length(); d++) {
+                final char other = DELIMITERS.charAt(d);
+                if (other != delimiter && split(start, end, other) == width) {
+                    for (int c = 1; c < width; c++) {
+                        table.edits().add(new TextEdit(cellStarts[c] - 1, 1, String.valueOf(delimiter)));
+                    }
+                    cells = width;
+                    break;
+                }
+            }
+            if (cells != width) {
+                cells = split(start, end, delimiter);
+            }
+        }
+        if (cells > width) {
+            final int cut = cellEnds[width - 1];
+            table.edits().add(TextEdit.delete(cut, end - cut));
+        } else if (cells < width) {
+            table.edits().add(TextEdit.insert(end, (delimiter + "null").repeat(width - cells)));
+        }
+        for (int c = 0; c < width; c++) {
+            final ToonTable.Column column = table.column(c);
+            if (c < cells) {
+                readCell(column, cellStarts[c], cellEnds[c], delimiter);
+            } else {
+                column.addNull();
+            }
+        }
+    }
+
+    /**
+     * Splits a row at the unquoted delimiters into {@link #cellStarts} and {@link #cellEnds}.
+     *
+     * @return the number of cells
+     */
+    private int split(final int start, final int end, final char delimiter) {
+        int cells = 0;
+        int cellStart = start;
+        boolean quoted = false;
+        for (int i = start; i <= end; i++) {
+            final char c = i < end ? text.charAt(i) : delimiter;
+            if (quoted && i < end) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                if (cells == cellStarts.length) {
+                    cellStarts = Arrays.copyOf(cellStarts, cells * 2);
+                    cellEnds = Arrays.copyOf(cellEnds, cells * 2);
+                }
+                cellStarts[cells] = cellStart;
+                cellEnds[cells] = i;
+                cells++;
+                cellStart = i + 1;
+            }
+        }
+        return cells;
+    }
+
+    private void readCell(final ToonTable.Column column, final int from, final int to, final char delimiter) {
+        int start = from;
+        int end = to;
+        while (start < end && isBlank(text.charAt(start), delimiter)) {
+            start++;
+        }
+        while (end > start && isBlank(text.charAt(end - 1), delimiter)) {
+            end--;
+        }
+        if (start < end && text.charAt(start) == '"') {
+            column.addString(unquote(start, end));
+        } else if (matches(start, end, "null")) {
+            column.addNull();
+        } else if (matches(start, end, "true")) {
+            column.addBoolean(true);
+        } else if (matches(start, end, "false")) {
+            column.addBoolean(false);
+        } else if (!readNumber(column, start, end)) {
+            column.addString(text.subSequence(start, end).toString());
+        }
+    }
+
+    /**
+     * Parses a number the way TOON writes them, {@code -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?}.
+     * Integers of up to 18 digits and decimals of up to {@value #MAX_EXACT_DIGITS} significant digits and a
+     * small exponent are computed without allocation; longer numbers fall back to the JDK parsers.
+     *
+     * @return whether the cell was a number and has been added
+     */
+    private boolean readNumber(final ToonTable.Column column, final int start, final int end) {
+        int i = start;
+        final boolean negative = i < end && text.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        final int integerStart = i;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        while (i < end && isDigit(text.charAt(i))) {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + text.charAt(i) - '0';
+                digits += mantissa == 0 ? 0 : 1;
+            } else {
+                exponent++;
+            }
+            i++;
+        }
+        if (i == integerStart || (text.charAt(integerStart) == '0' && i - integerStart > 1)) {
+            return false;
+        }
+        boolean decimal = false;
+        if (i < end && text.charAt(i) == '.') {
+            decimal = true;
+            final int fractionStart = ++i;
+            while (i < end && isDigit(text.charAt(i))) {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + text.charAt(i) - '0';
+                    digits += mantissa == 0 ? 0 : 1;
+                    exponent--;
+                }
+                i++;
+            }
+            if (i == fractionStart) {
+                return false;
+            }
+        }
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            decimal = true;
+            i++;
+            final boolean negativeExponent = i < end && text.charAt(i) == '-';
+            if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                i++;
+            }
+            final int exponentStart = i;
+            int value = 0;
+            while (i < end && isDigit(text.charAt(i))) {
+                value = Math.min(value * 10 + text.charAt(i) - '0', 10_000);
+                i++;
+            }
+            if (i == exponentStart) {
+                return false;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i != end) {
+            return false;
+        }
+        if (!decimal && exponent == 0) {
+            column.addLong(negative ? -mantissa : mantissa);
+        } else if (!decimal) {
+            addLarge(column, start, end);
+        } else if (digits <= MAX_EXACT_DIGITS && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            // both operands are exact doubles, so the one rounding of the division or product is correct
+            final double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            column.addDouble(negative ? -value : value);
+        } else {
+            column.addDouble(Double.parseDouble(text.subSequence(start, end).toString()));
+        }
+        return true;
+    }
+
+    private void addLarge(final ToonTable.Column column, final int start, final int end) {
+        final String number = text.subSequence(start, end).toString();
+        try {
+            column.addLong(Long.parseLong(number));
+        } catch (NumberFormatException ex) {
+            column.addDouble(Double.parseDouble(number));
+        }
+    }
+
+    /**
+     * Unescapes a quoted string up to its closing quote.
+     */
+    private String unquote(final int start, final int end) {
+        final StringBuilder value = new StringBuilder(end - start);
+        for (int i = start + 1; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c == '"') {
+                break;
+            }
+            if (c != '\\' || i + 1 >= end) {
+                value.append(c);
+                continue;
+            }
+            final char escaped = text.charAt(++i);
+            switch (escaped) {
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (i + 4 < end && isHex(i + 1, i + 5)) {
+                        value.append((char) Integer.parseInt(text.subSequence(i + 1, i + 5).toString(), 16));
+                        i += 4;
+                    } else {
+                        value.append(escaped);
+                    }
+                }
+                default -> value.append(escaped);
+            }
+        }
+        return value.toString();
+    }
+
+    private boolean matches(final int start, final int end, final String keyword) {
+        if (end - start != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (text.charAt(start + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isHex(final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int lineEnd(final int from) {
+        int i = from;
+        while (i < text.length() && text.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private int skipSpaces(final int from, final int end) {
+        int i = from;
+        while (i < end && text.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private int trimSpaces(final int start, final int end) {
+        int i = end;
+        while (i > start && (text.charAt(i - 1) == ' ' || text.charAt(i - 1) == '\r')) {
+            i--;
+        }
+        return i;
+    }
+
+    private static boolean isBlank(final char c, final char delimiter) {
+        return c == ' ' || (c == '\t' && delimiter != '\t');
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
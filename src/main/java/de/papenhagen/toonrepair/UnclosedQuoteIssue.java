@@ -0,0 +1,79 @@
+package de.papenhagen.toonrepair;
+
+import org.antlr.v4.runtime.Token;
+
+/**
+ * Handles a quoted string that is not closed before the end of its line.
+ */
+final class UnclosedQuoteIssue implements SyntaxIssue {
+
+    private final Token token;
+
+    /**
+     * Creates a new UnclosedQuoteIssue.
+     *
+     * @param token a token on the line with the unclosed quote
+     */
+    UnclosedQuoteIssue(final Token token) {
+        this.token = token;
+    }
+
+    /**
+     * Emits the insertion of a closing quote at the end of the token's line if the line has an odd number
+     * of unescaped quotes.
+     *
+     * @param source the original source
+     * @param edits  the buffer collecting the edits
+     */
+    @Override
+    public void emit(final CharSequence source, final EditBuffer edits) {
+        final int start = token.getStartIndex();
+        if (start < 0 || start > source.length()) {
+            return;
+        }
+
+        int lineStart = start;
+        while (lineStart > 0 && source.charAt(lineStart - 1) != '\n') {
+            lineStart--;
+        }
+        boolean open = false;
+        int lineEnd = lineStart;
+        while (lineEnd < source.length() && !isLineBreak(source.charAt(lineEnd))) {
+            final char c = source.charAt(lineEnd++);
+            if (c == '"') {
+                open = !open;
+            } else if (c == '\\' && open && lineEnd < source.length() && !isLineBreak(source.charAt(lineEnd))) {
+                lineEnd++; // skip the escaped character
+            }
+        }
+        if (!open) {
+            return;
+        }
+
+        edits.add(TextEdit.insert(lineEnd, "\""), this);
+    }
+
+    @Override
+    public IssueKind kind() {
+        return IssueKind.UNCLOSED_QUOTE;
+    }
+
+    @Override
+    public int getStartIndex() {
+        return token.getStartIndex();
+    }
+
+    @Override
+    public int getLine() {
+        return token.getLine();
+    }
+
+    @Override
+    public int getColumn() {
+        return token.getCharPositionInLine();
+    }
+
+    private static boolean isLineBreak(final char c) {
+        return c == '\n' || c == '\r';
+    }
+}
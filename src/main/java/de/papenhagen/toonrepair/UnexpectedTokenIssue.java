@@ -15,18 +15,33 @@ final class UnexpectedTokenIssue implements SyntaxIssue {
     }
 
     @Override
-    public String apply(final String source) {
+    public void emit(final CharSequence source, final EditBuffer edits) {
         final int start = token.getStartIndex();
         final int end = token.getStopIndex();
-        if (start < 0 || end >= source.length()) {
-            return source;
+        if (start < 0 || end < start || end >= source.length()) {
+            return;
         }
 
-        return source.substring(0, start) + source.substring(end + 1);
+        edits.add(TextEdit.delete(start, end - start + 1), this);
+    }
+
+    @Override
+    public IssueKind kind() {
+        return IssueKind.UNEXPECTED_TOKEN;
     }
 
     @Override
     public int getStartIndex() {
         return token.getStartIndex();
     }
+
+    @Override
+    public int getLine() {
+        return token.getLine();
+    }
+
+    @Override
+    public int getColumn() {
+        return token.getCharPositionInLine();
+    }
 }
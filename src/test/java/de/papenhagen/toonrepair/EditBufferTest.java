@@ -0,0 +1,57 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EditBufferTest {
+
+    @Test
+    @DisplayName("applies inserts, deletes and replacements against the original offsets in one pass")
+    void givenDisjointEdits_whenApplied_thenAllOffsetsReferToTheOriginal() {
+        // Given
+        final EditBuffer edits = new EditBuffer();
+        edits.add(TextEdit.insert(4, ":"));
+        edits.add(TextEdit.delete(12, 1));
+        edits.add(new TextEdit(14, 5, "[3,]"));
+
+        // When
+        final String result = edits.applyTo("name \"Alice\"\t\n[ 3 ] a\n");
+
+        // Then
+        assertThat(result).isEqualTo("name: \"Alice\"\n[3,] a\n");
+    }
+
+    @Test
+    @DisplayName("rejects edits overlapping an accepted edit and keeps the first one")
+    void givenOverlappingEdits_whenAdded_thenLaterOnesAreRejected() {
+        // Given
+        final EditBuffer edits = new EditBuffer();
+
+        // When / Then
+        assertThat(edits.add(new TextEdit(2, 4, "xy"))).isTrue();
+        assertThat(edits.add(TextEdit.insert(3, ":"))).isFalse();
+        assertThat(edits.add(TextEdit.delete(5, 3))).isFalse();
+        assertThat(edits.add(TextEdit.delete(0, 3))).isFalse();
+        assertThat(edits.add(new TextEdit(2, 4, "xy"))).isTrue();
+        assertThat(edits.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("inserts at the boundaries of a replacement are not overlaps")
+    void givenInsertsAtReplacementBoundaries_whenAdded_thenBothAreApplied() {
+        // Given
+        final EditBuffer edits = new EditBuffer();
+        edits.add(new TextEdit(5, 3, "[3,]"));
+
+        // When
+        final boolean before = edits.add(TextEdit.insert(5, ":"));
+        final boolean after = edits.add(TextEdit.insert(8, ":"));
+
+        // Then
+        assertThat(before).isTrue();
+        assertThat(after).isTrue();
+        assertThat(edits.applyTo("hikes[3]x")).isEqualTo("hikes:[3,]:x");
+    }
+}
@@ -0,0 +1,138 @@
+package de.papenhagen.toonrepair;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastToonLexerTest {
+    private static final int NUMBER_OF_FUZZ_TEST_CASES = 1_000;
+    private static final Random RANDOM = new Random(0xC0FFEE);
+
+    private static final String VALID_TOON = """
+        name : "Alice"
+        age: 42
+        tags[3,]:
+          "a","b","c"
+        hikes[3|]{id,name}:
+         1|Blue Lake Trail|-7.5e3|0.25|01|1.|-|true|truex|null
+        - item: "x\\"y\\u00e4"; "bad\\q" # comment
+        \t<INDENT>\r\n[ | 10 ]\t\t:;abc:
+        """;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "",
+        "name: \"Alice\"\n",
+        "\"unterminated\nnext",
+        "\"a\"x,\"b\" \"c\\",
+        "a\\b\rc\r\n\r",
+        "-5- -5 - -- 1e 1e+ 1E-05 0.5.5",
+        "tab\tcell\t\t x \t",
+        "\"\\u12g4\" \"\\u1234\" \"\\'\"",
+        "ünïcödé: wert\n",
+        "a :\n    b :\n        c : 1\n      d : 2\n\t e : 3\n  # c\n  \n\tf : 4\n  ",
+        "[2\t] a\tb :\n\tx\n  \ty\n \t\tz\n  w : 1\n",
+    })
+    @DisplayName("produces the same tokens as the generated lexer for edge cases")
+    void givenEdgeCase_whenLexed_thenTokensMatchGeneratedLexer(final String input) {
+        assertThat(fastTokens(input)).isEqualTo(generatedTokens(input));
+    }
+
+    @RepeatedTest(NUMBER_OF_FUZZ_TEST_CASES)
+    @DisplayName("produces the same tokens as the generated lexer for fuzzed TOON")
+    void givenFuzzedToon_whenLexed_thenTokensMatchGeneratedLexer() {
+        // Given
+        final String fuzzed = ToonMutations.fuzz(VALID_TOON, RANDOM);
+
+        // When / Then
+        assertThat(fastTokens(fuzzed)).isEqualTo(generatedTokens(fuzzed));
+    }
+
+    @RepeatedTest(100)
+    @DisplayName("repairs exactly like the generated lexer when plugged into the parser")
+    void givenFuzzedToon_whenRepairedWithHandWrittenLexer_thenResultMatches() {
+        // Given
+        final String fuzzed = ToonMutations.fuzz(VALID_TOON, RANDOM);
+        final ToonRepairer generated = new ToonRepairer();
+        final ToonRepairer handWritten = new ToonRepairer(RepairOptions.defaults().withHandWrittenLexer(true));
+
+        // When / Then
+        assertThat(handWritten.repair(fuzzed)).isEqualTo(generated.repair(fuzzed));
+    }
+
+    @Test
+    @DisplayName("hands out the same flyweight token per index for every input, reading the current input")
+    void givenTokenSource_whenReset_thenTokensAreReusedAndReadTheNewInput() {
+        // Given
+        final FastToonTokenSource source = new FastToonLexer("").tokenSource();
+        source.reset("a : 1\n");
+        final Token first = source.nextToken();
+
+        // When
+        source.reset("[2,] x :\n");
+        final Token reused = source.nextToken();
+
+        // Then
+        assertThat(reused).isSameAs(first);
+        assertThat(reused.getText()).isEqualTo("[");
+    }
+
+    @Test
+    @DisplayName("continues inside the indentation levels of earlier input and closes them at its end")
+    void givenOpenLevels_whenReset_thenInputStartsInsideThemAndDedentsAtTheirWidths() {
+        // Given
+        final FastToonLexer lexer = new FastToonLexer("");
+
+        // When
+        lexer.reset("    a : 1\n  b : 2\n", new int[]{2, 4}, 2);
+
+        // Then
+        final List<Integer> types = new ArrayList<>();
+        for (int i = 0; i < lexer.size(); i++) {
+            types.add(lexer.type(i));
+        }
+        assertThat(types).containsExactly(ToonLexer.INDENT, ToonLexer.INDENT,
+                ToonLexer.IDENT, ToonLexer.COLON, ToonLexer.NUMBER, ToonLexer.NEWLINE,
+                ToonLexer.DEDENT, ToonLexer.IDENT, ToonLexer.COLON, ToonLexer.NUMBER, ToonLexer.NEWLINE,
+                ToonLexer.DEDENT, Token.EOF);
+    }
+
+    private static List<String> generatedTokens(final String input) {
+        final ToonLexer lexer = new ToonLexer(CharStreams.fromString(input));
+        lexer.removeErrorListeners();
+        final List<String> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(describe(token.getType(), token.getStartIndex(), token.getStopIndex(), token.getLine(),
+                    token.getCharPositionInLine(), token.getText()));
+        } while (token.getType() != Token.EOF);
+        return tokens;
+    }
+
+    private static List<String> fastTokens(final String input) {
+        final FastToonLexer lexer = new FastToonLexer(input);
+        final List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < lexer.size(); i++) {
+            tokens.add(describe(lexer.type(i), lexer.start(i), lexer.stop(i), lexer.line(i), lexer.column(i),
+                    lexer.text(i)));
+        }
+        return tokens;
+    }
+
+    private static String describe(final int type, final int start, final int stop, final int line, final int column,
+                                   final String text) {
+        return ToonLexer.VOCABULARY.getSymbolicName(type) + "@" + start + ":" + stop + " " + line + ":" + column
+                + " '" + text + "'";
+    }
+}
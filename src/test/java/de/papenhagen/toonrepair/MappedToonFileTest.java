@@ -0,0 +1,52 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedToonFileTest {
+
+    @Test
+    @DisplayName("refuses to repair a file into itself and leaves it intact")
+    void givenSameFile_whenRepairedAsFile_thenItIsRejectedAndKept(@TempDir final Path directory) throws IOException {
+        // Given
+        final Path file = Files.writeString(directory.resolve("in.toon"), "name \"Alice\"\n");
+
+        // When / Then
+        assertThatThrownBy(() -> ToonRepair.repairFile(file, directory.resolve(".").resolve("in.toon")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(Files.readString(file)).isEqualTo("name \"Alice\"\n");
+    }
+
+    @Test
+    @DisplayName("repairs a memory-mapped file like the streaming mode, keeping non-ASCII text intact")
+    void givenLargeFile_whenRepairedAsFile_thenOutputMatchesStreaming(@TempDir final Path directory) throws IOException {
+        // Given
+        final Random random = new Random(0xF11E);
+        final StringBuilder input = new StringBuilder();
+        while (input.length() < 4 * ToonRepair.STREAM_CHUNK_SIZE) {
+            input.append("city : \"Zürich\"\n");
+            input.append(ToonMutations.fuzz("name : \"Alice\"\nage : 42\n[3,] id,label :\n\"a\",\"b\",\"c\"\n", random));
+        }
+        final Path in = Files.writeString(directory.resolve("in.toon"), input);
+        final Path out = directory.resolve("out.toon");
+        final StringWriter streamed = new StringWriter();
+        ToonRepair.repair(new StringReader(input.toString()), streamed);
+
+        // When
+        ToonRepair.repairFile(in, out);
+
+        // Then
+        assertThat(Files.readString(out)).isEqualTo(streamed.toString());
+    }
+}
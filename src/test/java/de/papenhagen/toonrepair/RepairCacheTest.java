@@ -0,0 +1,48 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RepairCacheTest {
+
+    @Test
+    @DisplayName("returns the cached result of a repeated input without repairing it again")
+    void givenRepeatedInput_whenRepaired_thenCachedResultIsReturned() {
+        // Given
+        final RepairCache cache = new RepairCache(1 << 20);
+        final RepairMetrics metrics = new RepairMetrics();
+        final ToonRepairer repairer = new ToonRepairer(RepairOptions.defaults().withListener(metrics).withCache(cache));
+        final RepairResult first = repairer.repairWithResult("name \"Alice\"\n");
+
+        // When
+        final RepairResult second = repairer.repairWithResult(new String("name \"Alice\"\n"));
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(metrics.repairs()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("evicts the least recently used results to stay within the byte bound")
+    void givenManyInputs_whenCached_thenRetainedBytesStayBounded() {
+        // Given
+        final long maxBytes = 64 * 1024;
+        final RepairCache cache = new RepairCache(maxBytes);
+        final ToonRepairer repairer = new ToonRepairer(RepairOptions.defaults().withCache(cache));
+
+        // When
+        for (int i = 0; i < 2_000; i++) {
+            repairer.repair("name : \"" + "x".repeat(i % 100) + i + "\"\n");
+        }
+
+        // Then
+        assertThat(cache.bytes()).isLessThanOrEqualTo(maxBytes);
+        assertThat(cache.evictions()).isPositive();
+        assertThat(cache.size() + cache.evictions()).isEqualTo(2_000);
+    }
+}
@@ -0,0 +1,50 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RepairMetricsTest {
+
+    @Test
+    @DisplayName("counts repairs, attempts, issue kinds and phase times")
+    void givenRepairsWithMetrics_whenCompleted_thenCountersAreUpdated() {
+        // Given
+        final RepairMetrics metrics = new RepairMetrics();
+        final ToonRepairer repairer = new ToonRepairer(RepairOptions.defaults().withListener(metrics));
+
+        // When
+        repairer.repair("name : \"Alice\"\n");
+        repairer.repair("name \"Alice\"\n");
+
+        // Then
+        assertThat(metrics.repairs()).isEqualTo(2);
+        assertThat(metrics.repairsWithAttempts(0)).isEqualTo(1);
+        assertThat(metrics.repairsWithAttempts(2)).isEqualTo(1);
+        // the missing colon is inserted, but the line stays invalid, see the FIXED_POINT status
+        assertThat(metrics.repairsWithStatus(RepairStatus.FIXED_POINT)).isEqualTo(1);
+        assertThat(metrics.unconverged()).isEqualTo(1);
+        assertThat(metrics.issues(IssueKind.MISSING_COLON)).isPositive();
+        assertThat(metrics.phaseNanos(RepairPhase.VALIDATE)).isPositive();
+        assertThat(metrics.phaseNanos(RepairPhase.PARSE)).isPositive();
+        assertThat(metrics.latencyPercentile(50)).isPositive();
+        assertThat(metrics.latencyPercentile(99)).isGreaterThanOrEqualTo(metrics.latencyPercentile(50));
+    }
+
+    @Test
+    @DisplayName("reports repairs that run out of attempts as not converged")
+    void givenTooFewAttempts_whenRepaired_thenItIsReportedAsUnconverged() {
+        // Given
+        final RepairMetrics metrics = new RepairMetrics();
+        final ToonRepairer repairer = new ToonRepairer(RepairOptions.defaults().withListener(metrics).withMaxAttempts(1));
+
+        // When
+        repairer.repair("name \"Alice\"\n");
+
+        // Then
+        assertThat(metrics.repairsWithAttempts(1)).isEqualTo(1);
+        assertThat(metrics.repairsWithStatus(RepairStatus.ATTEMPTS_EXHAUSTED)).isEqualTo(1);
+        assertThat(metrics.unconverged()).isEqualTo(1);
+    }
+}
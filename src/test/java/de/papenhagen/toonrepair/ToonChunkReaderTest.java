@@ -0,0 +1,77 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToonChunkReaderTest {
+
+    @Test
+    @DisplayName("streams large input in block-aligned chunks and repairs every block")
+    void givenLargeStream_whenRepaired_thenEveryBlockIsRepaired() throws IOException {
+        // Given
+        final String block = "name \"Alice\"\nage: 42\n";
+        final int blocks = 2 * ToonRepair.STREAM_CHUNK_SIZE / block.length();
+        final String input = block.repeat(blocks);
+        final StringWriter output = new StringWriter();
+
+        // When
+        ToonRepair.repair(new StringReader(input), output);
+
+        // Then
+        assertThat(output.toString()).isEqualTo("name: \"Alice\"\nage: 42\n".repeat(blocks));
+    }
+
+    @ParameterizedTest
+    @MethodSource("chunkCuts")
+    @DisplayName("cuts chunks only before keys, headers and lines after a blank line, never before a row")
+    void givenLine_whenCheckedForBlockStart_thenOnlyLinesThatCannotBeRowsStartBlocks(final String line,
+                                                                                     final boolean afterBlankLine,
+                                                                                     final boolean expected) {
+        // When
+        final boolean blockStart = ToonChunkReader.isBlockStart(line, afterBlankLine);
+
+        // Then
+        assertThat(blockStart).isEqualTo(expected);
+    }
+
+    static Stream<Arguments> chunkCuts() {
+        return Stream.of(
+                Arguments.of("name: \"Alice\"\n", false, true),
+                Arguments.of("[3|] id|name :\n", false, true),
+                Arguments.of("x-1|y-2|z-3\n", false, false),
+                Arguments.of("abc,\"d:e\"\n", false, false),
+                Arguments.of("\"a:b\",c\n", false, false),
+                Arguments.of("x-1|y-2|z-3\n", true, true),
+                Arguments.of("  name: 1\n", true, false));
+    }
+
+    @Test
+    @DisplayName("parallel repair produces the same output as the streaming mode and the whole-document repair")
+    void givenLargeBrokenInput_whenRepairedInParallel_thenOutputMatchesStreamingAndParse() throws IOException {
+        // Given
+        final Random random = new Random(0xC0FFEE);
+        final StringBuilder input = new StringBuilder();
+        while (input.length() < 4 * ToonRepair.STREAM_CHUNK_SIZE) {
+            input.append(ToonMutations.fuzz("name: \"Alice\"\nage: 42\n[3,] id,label:\n\"a\",\"b\",\"c\"\n", random));
+        }
+        final StringWriter streamed = new StringWriter();
+        ToonRepair.repair(new StringReader(input.toString()), streamed);
+
+        // When
+        final String result = ToonRepair.parseParallel(input.toString());
+
+        // Then
+        assertThat(result).isEqualTo(streamed.toString()).isEqualTo(ToonRepair.parse(input.toString()));
+    }
+}
@@ -0,0 +1,72 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToonDfaCacheTest {
+
+    @Test
+    @DisplayName("warm-up populates the cache and clear empties it")
+    void givenWarmedUpCache_whenCleared_thenItIsEmpty() {
+        // Given
+        final ToonDfaCache cache = new ToonDfaCache(Long.MAX_VALUE);
+        cache.warmUp();
+        final long warmSize = cache.size();
+
+        // When
+        cache.clear();
+
+        // Then
+        assertThat(warmSize).isPositive();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("a cache growing past its limit is replaced while repairs keep their results")
+    void givenTinyLimit_whenRepairing_thenCacheIsReplacedAndResultsAreUnchanged() {
+        // Given
+        final ToonDfaCache cache = new ToonDfaCache(1);
+        final ToonRepairer repairer = new ToonRepairer(RepairOptions.defaults().withDfaCache(cache));
+        final String input = "name \"Alice\"\n";
+
+        // When
+        String result = null;
+        for (int i = 0; i < 2 * ToonRepairer.CACHE_CHECK_INTERVAL; i++) {
+            result = repairer.repair(input);
+        }
+
+        // Then
+        assertThat(cache.evictions()).isPositive();
+        assertThat(result).isEqualTo("name: \"Alice\"\n");
+    }
+
+    @Test
+    @DisplayName("a limit below the warm-up size leaves the replaced cache empty instead of refilling it")
+    void givenLimitBelowWarmUpSize_whenTrimmed_thenCacheIsNotWarmedUpAgain() {
+        // Given
+        final ToonDfaCache cache = new ToonDfaCache(Long.MAX_VALUE);
+        cache.warmUp();
+        cache.setMaxSize(cache.size() - 1);
+
+        // When
+        final boolean trimmed = cache.trimToMaxSize();
+
+        // Then
+        assertThat(trimmed).isTrue();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.trimToMaxSize()).isFalse();
+    }
+
+    @Test
+    @DisplayName("the default cache is warmed up when it is first requested")
+    void givenDefaultCache_whenRequested_thenItIsWarm() {
+        // When
+        final ToonDfaCache cache = ToonDfaCache.defaultCache();
+
+        // Then
+        assertThat(cache.size()).isPositive();
+    }
+}
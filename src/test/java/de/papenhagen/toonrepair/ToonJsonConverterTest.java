@@ -0,0 +1,152 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ToonJsonConverterTest {
+
+    @Test
+    @DisplayName("nests the fields of an indented block in the object of the field above it")
+    void givenIndentedFields_whenConvertedToJson_thenTheyNestUnderTheirField() {
+        // Given
+        final String toon = """
+                user :
+                  name : "x"
+                  age : 3
+                  address :
+                    city : "Berlin"
+                    zip : 10115
+                other : 1
+                """;
+
+        // When
+        final String json = ToonRepair.toJson(toon);
+
+        // Then
+        assertThat(json).isEqualTo("{\"user\":{\"name\":\"x\",\"age\":3,"
+                + "\"address\":{\"city\":\"Berlin\",\"zip\":10115}},\"other\":1}");
+    }
+
+    @ParameterizedTest
+    @MethodSource("nestedDocuments")
+    @DisplayName("nests blocks that hold list items, tables or a primitive, also around tables and repaired lines")
+    void givenNestedDocument_whenConvertedToJson_thenBlocksBecomeNestedValues(final String toon,
+                                                                             final String expected) {
+        // When
+        final String json = ToonRepair.toJson(toon);
+
+        // Then
+        assertThat(json).isEqualTo(expected);
+    }
+
+    static Stream<Arguments> nestedDocuments() {
+        return Stream.of(
+                Arguments.of("items :\n  - 1\n  - \"two\"\nn : 1\n", "{\"items\":[1,\"two\"],\"n\":1}"),
+                Arguments.of("a :\n  b :\n    [2,] x :\n      1\n      2\n  c : 3\n",
+                        "{\"a\":{\"b\":[{\"x\":1},{\"x\":2}],\"c\":3}}"),
+                Arguments.of("k :\n  42\nm :\n  empty :\n", "{\"k\":42,\"m\":{\"empty\":{}}}"),
+                Arguments.of("user :\n  name : \"x\"\n  addre\tss :\n    city : \"B\"\n  age : 3\nother : 1\n",
+                        "{\"user\":{\"name\":\"x\",\"address\":{\"city\":\"B\"},\"age\":3},\"other\":1}"));
+    }
+
+    @Test
+    @DisplayName("writes nested objects and arrays to a stream as UTF-8")
+    void givenNestedDocument_whenConvertedToStream_thenJsonIsNestedUtf8() throws IOException {
+        // Given
+        final String toon = "user :\n  city : \"Zürich\"\n  tags :\n    - \"a\"\n    - \"b\"\n";
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        new ToonJsonConverter().convert(toon, out);
+
+        // Then
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"user\":{\"city\":\"Zürich\",\"tags\":[\"a\",\"b\"]}}");
+    }
+
+    @ParameterizedTest
+    @MethodSource("primitiveDocuments")
+    @DisplayName("converts a document of a single primitive to that primitive")
+    void givenSinglePrimitive_whenConvertedToJson_thenResultIsThatPrimitive(final String toon,
+                                                                           final String expected) {
+        // When
+        final String json = ToonRepair.toJson(toon);
+
+        // Then
+        assertThat(json).isEqualTo(expected);
+    }
+
+    static Stream<Arguments> primitiveDocuments() {
+        return Stream.of(
+                Arguments.of("\"hello\"\n", "\"hello\""),
+                Arguments.of("42\n", "42"),
+                Arguments.of("true\n", "true"),
+                Arguments.of("\"a\"\n\"b\"\n", "[\"a\",\"b\"]"),
+                Arguments.of("", "{}"));
+    }
+
+    @Test
+    @DisplayName("repairs and converts to JSON in one pass like converting the repaired document")
+    void givenBrokenHeader_whenConvertedToJson_thenOutputMatchesConvertingTheRepair() {
+        // Given
+        final String toon = """
+                name : "Alice"
+                hikes :
+                [2 ,x] id,label :
+                "a","b"
+                "c","d"
+                - 42
+                """;
+
+        // When
+        final String json = ToonRepair.toJson(toon);
+
+        // Then
+        assertThat(json).isEqualTo("{\"name\":\"Alice\",\"hikes\":[{\"id\":\"a\",\"label\":\"b\"},"
+                + "{\"id\":\"c\",\"label\":\"d\"},42]}");
+        assertThat(json).isEqualTo(ToonRepair.toJson(ToonRepair.parse(toon)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("numericTables")
+    @DisplayName("converts tables with numbers, booleans and null cells to arrays of typed objects")
+    void givenNumericTable_whenConvertedToJson_thenRowsAreObjectsKeyedByTheFields(final String toon,
+                                                                                   final String expected) {
+        // When
+        final String json = ToonRepair.toJson(toon);
+
+        // Then
+        assertThat(json).isEqualTo(expected);
+    }
+
+    static Stream<Arguments> numericTables() {
+        return Stream.of(
+                Arguments.of("[2,] x,y :\n1,2\n3,4\n", "[{\"x\":1,\"y\":2},{\"x\":3,\"y\":4}]"),
+                Arguments.of("points :\n[2|] x|y|ok :\n-1.5|2e3|true\n0|\"b\"|null\n",
+                        "{\"points\":[{\"x\":-1.5,\"y\":2000.0,\"ok\":true},{\"x\":0,\"y\":\"b\",\"ok\":null}]}"),
+                Arguments.of("[ 2 ,x] x,y :\n1,2\n3\n", "[{\"x\":1,\"y\":2},{\"x\":3,\"y\":null}]"));
+    }
+
+    @Test
+    @DisplayName("rejects input that is still invalid after the repair instead of converting it with lines lost")
+    void givenInputTheRepairCannotFix_whenConvertedToJson_thenItIsRejected() {
+        // Given
+        final String toon = "name : 'Bob'\nage 42\n";
+
+        // When / Then
+        assertThatThrownBy(() -> ToonRepair.toJson(toon))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("syntax error");
+    }
+}
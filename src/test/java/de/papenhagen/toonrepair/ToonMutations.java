@@ -0,0 +1,106 @@
+package de.papenhagen.toonrepair;
+
+import java.util.Random;
+
+/**
+ * Mutation operators used to turn valid TOON into broken TOON.
+ * Shared by the fuzz tests and the benchmark corpora so both exercise the same kinds of faults.
+ */
+public final class ToonMutations {
+
+    private ToonMutations() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Applies between one and five random mutations to the given valid TOON.
+     *
+     * @param valid  the valid TOON input
+     * @param random the source of randomness
+     * @return the fuzzed TOON
+     */
+    public static String fuzz(final String valid, final Random random) {
+        final StringBuilder stringBuilder = new StringBuilder(valid);
+
+        final int operations = random.nextInt(5) + 1;
+        for (int i = 0; i < operations; i++) {
+            applyRandomMutation(stringBuilder, random);
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Mutates the builder in place with one randomly chosen operation.
+     *
+     * @param stringBuilder the TOON to mutate
+     * @param random        the source of randomness
+     */
+    public static void applyRandomMutation(final StringBuilder stringBuilder, final Random random) {
+        if (stringBuilder.isEmpty()) {
+            return;
+        }
+
+        final int choice = random.nextInt(6);
+        final int pos = random.nextInt(stringBuilder.length());
+
+        switch (choice) {
+            case 0 -> // remove character
+                stringBuilder.deleteCharAt(pos);
+
+            case 1 -> // duplicate character
+                stringBuilder.insert(pos, stringBuilder.charAt(pos));
+
+            case 2 -> // remove colon
+                removeFirst(stringBuilder, ':');
+
+            case 3 -> // break array header
+                replaceFirst(stringBuilder, "[", "[" + randomGarbage(random));
+
+            case 4 -> // truncate string
+                truncateAfterQuote(stringBuilder);
+
+            case 5 -> // inject delimiter
+                stringBuilder.insert(pos, randomDelimiter(random));
+            default -> throw new IllegalStateException("Unexpected value: " + choice);
+        }
+    }
+
+    private static void removeFirst(StringBuilder stringBuilder, char c) {
+        final int idx = stringBuilder.indexOf(String.valueOf(c));
+        if (idx >= 0) {
+            stringBuilder.deleteCharAt(idx);
+        }
+    }
+
+    private static void replaceFirst(StringBuilder stringBuilder, String target, String replacement) {
+        final int idx = stringBuilder.indexOf(target);
+        if (idx >= 0) {
+            stringBuilder.replace(idx, idx + target.length(), replacement);
+        }
+    }
+
+    private static void truncateAfterQuote(StringBuilder stringBuilder) {
+        final int idx = stringBuilder.indexOf("\"");
+        // Truncates string after the first quote if present
+        if (idx >= 0 && idx + 1 < stringBuilder.length()) {
+            stringBuilder.delete(idx + 1, stringBuilder.length());
+        }
+    }
+
+    private static char randomDelimiter(Random random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> ',';
+            case 1 -> '|';
+            default -> '\t';
+        };
+    }
+
+    private static String randomGarbage(Random random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> "abc";
+            case 1 -> ";;;";
+            default -> "";
+        };
+    }
+}
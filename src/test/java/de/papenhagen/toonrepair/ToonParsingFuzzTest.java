@@ -33,81 +33,6 @@ class ToonParsingFuzzTest {
      * Mutates input via random operations to produce a fuzzed string
      */
     private static String fuzz() {
-        final StringBuilder stringBuilder = new StringBuilder(VALID_TOON);
-
-        final int operations = RANDOM.nextInt(5) + 1;
-        for (int i = 0; i < operations; i++) {
-            applyRandomMutation(stringBuilder);
-        }
-
-        return stringBuilder.toString();
-    }
-
-    private static void applyRandomMutation(StringBuilder stringBuilder) {
-        if (stringBuilder.isEmpty()) {
-            return;
-        }
-
-        final int choice = RANDOM.nextInt(6);
-        final int pos = RANDOM.nextInt(stringBuilder.length());
-
-        switch (choice) {
-            case 0 -> // remove character
-                stringBuilder.deleteCharAt(pos);
-
-            case 1 -> // duplicate character
-                stringBuilder.insert(pos, stringBuilder.charAt(pos));
-
-            case 2 -> // remove colon
-                removeFirst(stringBuilder, ':');
-
-            case 3 -> // break array header
-                replaceFirst(stringBuilder, "[", "[" + randomGarbage());
-
-            case 4 -> // truncate string
-                truncateAfterQuote(stringBuilder);
-
-            case 5 -> // inject delimiter
-                stringBuilder.insert(pos, randomDelimiter());
-            default -> throw new IllegalStateException("Unexpected value: " + choice);
-        }
-    }
-
-    private static void removeFirst(StringBuilder stringBuilder, char c) {
-        final int idx = stringBuilder.indexOf(String.valueOf(c));
-        if (idx >= 0) {
-            stringBuilder.deleteCharAt(idx);
-        }
-    }
-
-    private static void replaceFirst(StringBuilder stringBuilder, String target, String replacement) {
-        final int idx = stringBuilder.indexOf(target);
-        if (idx >= 0) {
-            stringBuilder.replace(idx, idx + target.length(), replacement);
-        }
-    }
-
-    private static void truncateAfterQuote(StringBuilder stringBuilder) {
-        final int idx = stringBuilder.indexOf("\"");
-        // Truncates string after the first quote if present
-        if (idx >= 0 && idx + 1 < stringBuilder.length()) {
-            stringBuilder.delete(idx + 1, stringBuilder.length());
-        }
-    }
-
-    private static char randomDelimiter() {
-        return switch (RANDOM.nextInt(3)) {
-            case 0 -> ',';
-            case 1 -> '|';
-            default -> '\t';
-        };
-    }
-
-    private static String randomGarbage() {
-        return switch (RANDOM.nextInt(3)) {
-            case 0 -> "abc";
-            case 1 -> ";;;";
-            default -> "";
-        };
+        return ToonMutations.fuzz(VALID_TOON, RANDOM);
     }
 }
@@ -0,0 +1,163 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToonReaderTest {
+
+    @Test
+    @DisplayName("reports fields, array headers, rows, list items and comments as events")
+    void givenValidDocument_whenRead_thenEventsAreReportedInOrder() {
+        // Given
+        final String toon = """
+            name : "Alice"
+            age : 42
+            [2|] id|label :
+            "a"|"b"
+            "c"|"d"
+            - 42
+            # done
+            """;
+        final List<String> events = new ArrayList<>();
+
+        // When
+        new ToonReader().read(toon, recorder(events));
+
+        // Then
+        assertThat(events).containsExactly(
+                "start",
+                "name=\"Alice\"",
+                "age=42",
+                "header 2|[id, label]",
+                "row [\"a\", \"b\"]",
+                "row [\"c\", \"d\"]",
+                "-",
+                "primitive 42",
+                "/-",
+                "# done",
+                "end");
+    }
+
+    @Test
+    @DisplayName("reports indented lines between the start and end of their blocks")
+    void givenNestedDocument_whenRead_thenBlocksNestLikeTheIndentation() {
+        // Given
+        final String toon = """
+            user :
+              name : "Alice"
+              address :
+                city : "Berlin"
+
+                # moved
+              age : 42
+            other : 1
+            """;
+        final List<String> events = new ArrayList<>();
+
+        // When
+        new ToonReader().read(toon, recorder(events));
+
+        // Then
+        assertThat(events).containsExactly(
+                "start",
+                "user=null",
+                "{",
+                "name=\"Alice\"",
+                "address=null",
+                "{",
+                "city=\"Berlin\"",
+                "# moved",
+                "}",
+                "age=42",
+                "}",
+                "other=1",
+                "end");
+    }
+
+    @Test
+    @DisplayName("a strict read stops before the block of the broken line and leaves the enclosing block open")
+    void givenErrorInNestedBlock_whenReadStrictly_thenOnlyBlocksOfValidLinesAreStarted() {
+        // Given
+        final String toon = "user :\n  address :\n    ]]]\n";
+        final List<String> events = new ArrayList<>();
+
+        // When
+        final int validEnd = new ToonReader().readLines(toon, recorder(events), true);
+
+        // Then
+        assertThat(validEnd).isEqualTo(toon.indexOf("    ]]]"));
+        assertThat(events).containsExactly("user=null", "{", "address=null");
+    }
+
+    /**
+     * Records the events of a read as strings.
+     */
+    private static ToonHandler recorder(final List<String> events) {
+        return new ToonHandler() {
+            @Override
+            public void startDocument() {
+                events.add("start");
+            }
+
+            @Override
+            public void endDocument() {
+                events.add("end");
+            }
+
+            @Override
+            public void objectField(final String key, final String value) {
+                events.add(key + "=" + value);
+            }
+
+            @Override
+            public void arrayHeader(final int length, final char delimiter, final List<String> fields) {
+                events.add("header " + length + delimiter + fields);
+            }
+
+            @Override
+            public void row(final List<String> cells) {
+                events.add("row " + cells);
+            }
+
+            @Override
+            public void primitive(final String value) {
+                events.add("primitive " + value);
+            }
+
+            @Override
+            public void startListItem() {
+                events.add("-");
+            }
+
+            @Override
+            public void endListItem() {
+                events.add("/-");
+            }
+
+            @Override
+            public void startBlock() {
+                events.add("{");
+            }
+
+            @Override
+            public void endBlock() {
+                events.add("}");
+            }
+
+            @Override
+            public void comment(final String text) {
+                events.add(text);
+            }
+
+            @Override
+            public void syntaxError(final int line, final int column) {
+                events.add("error " + line + ":" + column);
+            }
+        };
+    }
+}
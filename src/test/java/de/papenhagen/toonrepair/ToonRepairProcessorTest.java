@@ -0,0 +1,73 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToonRepairProcessorTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"hello\"\n", "\"hello\"\nage : 42\n", "\"hello\"\n\n"})
+    @DisplayName("holds back a quoted first line until it is known whether it is the whole document")
+    void givenQuotedFirstLine_whenProcessed_thenOutputMatchesTheWholeDocument(final String input) throws Exception {
+        // Given
+        final ToonRepairProcessor processor = new ToonRepairProcessor();
+        final BlockingQueue<RepairedChunk> chunks = new LinkedBlockingQueue<>();
+        final CompletableFuture<Void> done = processor.consume(chunks::add);
+        final SubmissionPublisher<CharSequence> source = new SubmissionPublisher<>();
+        source.subscribe(processor);
+
+        // When
+        for (final String line : input.split("(?<=\n)")) {
+            source.submit(line);
+        }
+        source.close();
+        done.get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(String.join("", chunks.stream().map(RepairedChunk::text).toList()))
+                .isEqualTo(ToonRepair.parse(input));
+    }
+
+    @Test
+    @DisplayName("repairs fragmented input line by line as soon as each line is complete")
+    void givenFragmentedStream_whenProcessed_thenCompleteLinesArePublishedRepaired() throws Exception {
+        // Given
+        final String input = "name \"Alice\"\n[ | 2 ] id|name :\n1|\"a\"\nage : 42";
+        final BlockingQueue<RepairedChunk> chunks = new LinkedBlockingQueue<>();
+        final ToonRepairProcessor processor = new ToonRepairProcessor();
+        final CompletableFuture<Void> done = processor.consume(chunks::add);
+        final SubmissionPublisher<CharSequence> source = new SubmissionPublisher<>();
+        source.subscribe(processor);
+
+        // When
+        for (int i = 0; i < input.length(); i += 3) {
+            source.submit(input.substring(i, Math.min(i + 3, input.length())));
+        }
+        final RepairedChunk first = chunks.poll(5, TimeUnit.SECONDS);
+        source.close();
+        done.get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(first).isNotNull();
+        assertThat(first.line()).isEqualTo(1);
+        assertThat(first.text()).isEqualTo("name: \"Alice\"\n");
+        final List<RepairedChunk> all = new ArrayList<>(List.of(first));
+        all.addAll(chunks);
+        assertThat(all).extracting(RepairedChunk::text).containsExactly(
+                "name: \"Alice\"\n", "[2|] id|name :\n", "1|\"a\"\n", "age : 42");
+        assertThat(String.join("", all.stream().map(RepairedChunk::text).toList())).isEqualTo(ToonRepair.parse(input));
+        assertThat(all).flatExtracting(RepairedChunk::edits).extracting(RepairEdit::line).containsExactly(1, 2);
+    }
+}
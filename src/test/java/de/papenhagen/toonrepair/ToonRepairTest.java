@@ -1,10 +1,22 @@
 package de.papenhagen.toonrepair;
 
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.tuple;
 
 class ToonRepairTest {
 
@@ -22,6 +34,93 @@ class ToonRepairTest {
         assertThat(result).isEqualTo(expected);
     }
 
+    @Test
+    @DisplayName("reports the applied edits with issue kind and position, replaying them yields the repaired text")
+    void givenBrokenInput_whenRepairedWithResult_thenEditsDescribeTheRepair() {
+        // Given
+        final String input = "name : \"Alice\"\nage \"x\"\n[ | 10 ] data\n";
+
+        // When
+        final RepairResult result = ToonRepair.parseWithResult(input);
+
+        // Then
+        assertThat(result.text()).isEqualTo(ToonRepair.parse(input));
+        assertThat(result.converged()).isEqualTo(new ToonRepairer().isValid(result.text()));
+        assertThat(result.edits())
+                .extracting(RepairEdit::kind, RepairEdit::line, RepairEdit::replacement)
+                .containsExactly(
+                        tuple(IssueKind.MISSING_COLON, 2, ":"),
+                        tuple(IssueKind.ARRAY_HEADER, 3, "[10|]"));
+
+        String replayed = input;
+        for (int attempt = 1; attempt <= result.attempts(); attempt++) {
+            final EditBuffer edits = new EditBuffer();
+            for (final RepairEdit edit : result.edits()) {
+                if (edit.attempt() == attempt) {
+                    edits.add(edit.toTextEdit());
+                }
+            }
+            replayed = edits.applyTo(replayed);
+        }
+        assertThat(replayed).isEqualTo(result.text());
+    }
+
+    @Test
+    @DisplayName("stops at a fixed point or when a budget is used up and says why")
+    void givenBudgets_whenRepaired_thenStatusTellsWhyTheRepairStopped() {
+        // Given
+        final String input = "name \"Alice\"\n";
+
+        // When
+        final RepairResult unlimited = new ToonRepairer().repairWithResult(input);
+        final RepairResult oneAttempt = new ToonRepairer(RepairOptions.defaults().withMaxAttempts(1))
+                .repairWithResult(input);
+        final RepairResult noTime = new ToonRepairer(RepairOptions.defaults().withTimeBudget(Duration.ZERO))
+                .repairWithResult(input);
+
+        // Then
+        assertThat(unlimited.status()).isEqualTo(RepairStatus.FIXED_POINT);
+        assertThat(unlimited.converged()).isFalse();
+        assertThat(unlimited.attempts()).isEqualTo(2);
+        assertThat(oneAttempt.status()).isEqualTo(RepairStatus.ATTEMPTS_EXHAUSTED);
+        assertThat(oneAttempt.text()).isEqualTo(unlimited.text());
+        assertThat(noTime.status()).isEqualTo(RepairStatus.TIME_BUDGET_EXCEEDED);
+        assertThat(noTime.text()).isEqualTo(input);
+        assertThat(new ToonRepairer().repairWithResult("name : \"Alice\"\n").status()).isEqualTo(RepairStatus.VALID);
+    }
+
+    @Test
+    @DisplayName("reports a repair as REPAIRED only if the repaired text is valid")
+    void givenErrorsOnUntouchedLines_whenRepaired_thenStatusIsFixedPoint() {
+        // Given
+        final String input = "[ | 10 ] data\n}}} ]\n";
+        final ToonRepairer repairer = new ToonRepairer();
+
+        // When
+        final RepairResult result = repairer.repairWithResult(input);
+
+        // Then
+        assertThat(repairer.isValid(result.text())).isFalse();
+        assertThat(result.status()).isEqualTo(RepairStatus.FIXED_POINT);
+        assertThat(result.converged()).isFalse();
+    }
+
+    @Test
+    @DisplayName("repairs with partial re-parsing like with whole-document re-parsing")
+    void givenBrokenDocument_whenRepairedWithPartialReparse_thenResultMatchesWholeDocumentReparse() {
+        // Given
+        final String input = "[;;;[3,] id :\nname : \"A\"\n[;;;[2|] x :\n";
+        final ToonRepairer partial = new ToonRepairer(RepairOptions.defaults().withPartialReparse(true));
+
+        // When
+        final RepairResult result = partial.repairWithResult(input);
+
+        // Then
+        assertThat(result).isEqualTo(new ToonRepairer().repairWithResult(input));
+        assertThat(result.attempts()).isEqualTo(2);
+        assertThat(result.converged()).isTrue();
+    }
+
     @Test
     @DisplayName("should repair array header with length and custom delimiter")
     void shouldRepairArrayHeaderWithLengthAndDelimiter() {
@@ -36,6 +135,160 @@ class ToonRepairTest {
         assertThat(result).isEqualTo(expected);
     }
 
+    @Test
+    @DisplayName("candidate ranking picks the repair that leaves the fewest errors")
+    void givenRunTogetherLines_whenRepairedWithCandidateRanking_thenALineBreakIsInserted() {
+        // Given
+        final String input = "name : \"Alice\" age : 42\n";
+        final ToonRepairer ranking = new ToonRepairer(RepairOptions.defaults().withCandidateRanking(true));
+
+        // When
+        final RepairResult result = ranking.repairWithResult(input);
+
+        // Then
+        assertThat(result.text()).isEqualTo("name : \"Alice\" \nage : 42\n");
+        assertThat(result.edits()).extracting(RepairEdit::kind).containsExactly(IssueKind.MISSING_NEWLINE);
+        assertThat(new ToonRepairer().isValid(result.text())).isTrue();
+        assertThat(new ToonRepairer().isValid(ToonRepair.parse(input))).isFalse();
+    }
+
+    @Test
+    @DisplayName("candidate ranking scores the candidates with the configured lexer")
+    void givenBrokenInput_whenRankedWithHandWrittenLexer_thenResultMatchesGeneratedLexer() {
+        // Given
+        final RepairOptions ranking = RepairOptions.defaults().withCandidateRanking(true);
+        final ToonRepairer generated = new ToonRepairer(ranking);
+        final ToonRepairer handWritten = new ToonRepairer(ranking.withHandWrittenLexer(true));
+        final String valid = "name : \"Alice\"\n[3,] id,name :\n \"a\",\"b\"\nage : 42\n";
+        final Random random = new Random(11);
+
+        // When / Then
+        assertThat(handWritten.repairWithResult("name : \"Alice\" age : 42\n").text())
+                .isEqualTo("name : \"Alice\" \nage : 42\n");
+        for (int i = 0; i < 200; i++) {
+            final String input = ToonMutations.fuzz(valid, random);
+            assertThat(handWritten.repairWithResult(input)).as(input).isEqualTo(generated.repairWithResult(input));
+        }
+    }
+
+    @Test
+    @DisplayName("candidate ranking stops scoring once the time budget is used up")
+    void givenBudgetUsedUpBeforeRanking_whenRepaired_thenStatusIsTimeBudgetExceeded() {
+        // Given
+        final RepairListener slowParse = new RepairListener() {
+            @Override
+            public void phaseCompleted(final RepairPhase phase, final long nanos) {
+                final long until = System.nanoTime() + Duration.ofMillis(50).toNanos();
+                while (phase == RepairPhase.PARSE && System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+            }
+        };
+        final RepairOptions options = RepairOptions.defaults().withListener(slowParse)
+                .withTimeBudget(Duration.ofMillis(20));
+        final String input = "name : \"Alice\" age : 42\n";
+
+        // When
+        final RepairResult ranked = new ToonRepairer(options.withCandidateRanking(true)).repairWithResult(input);
+        final RepairResult unranked = new ToonRepairer(options).repairWithResult(input);
+
+        // Then
+        assertThat(ranked.status()).isEqualTo(RepairStatus.TIME_BUDGET_EXCEEDED);
+        assertThat(ranked.text()).isEqualTo(input);
+        assertThat(unranked.text()).isNotEqualTo(input);
+    }
+
+    @Test
+    @DisplayName("line memoization repeats the repair of a line shape and reports the same edits and issues")
+    void givenRepeatedBrokenLines_whenRepairedWithLineMemoization_thenResultMatchesFullRepair() {
+        // Given
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            input.append("name \"user").append(i).append("\"\n").append("age ").append(i).append('\n');
+        }
+        final RepairMetrics metrics = new RepairMetrics();
+        final ToonRepairer memoizing = new ToonRepairer(
+                RepairOptions.defaults().withLineMemoization(true).withListener(metrics));
+
+        // When
+        final RepairResult result = memoizing.repairWithResult(input.toString());
+
+        // Then
+        final RepairResult expected = new ToonRepairer().repairWithResult(input.toString());
+        assertThat(result).isEqualTo(expected);
+        assertThat(metrics.issues(IssueKind.MISSING_COLON))
+                .isEqualTo(expected.edits().stream().filter(edit -> edit.kind() == IssueKind.MISSING_COLON).count());
+    }
+
+    @Test
+    @DisplayName("line memoization does not copy header lengths from one line to another of the same shape")
+    void givenHeadersOfSameShape_whenRepairedWithLineMemoization_thenEachLengthIsKept() {
+        // Given
+        final String input = "[2||] a|b :\n[2||] a|b :\n[7||] a|b :\n[9||] a|b :\n";
+        final ToonRepairer memoizing = new ToonRepairer(RepairOptions.defaults().withLineMemoization(true));
+
+        // When
+        final RepairResult result = memoizing.repairWithResult(input);
+
+        // Then
+        assertThat(result).isEqualTo(new ToonRepairer().repairWithResult(input));
+        assertThat(result.text()).contains("[2|]", "[7|]", "[9|]");
+    }
+
+    @Test
+    @DisplayName("line memoization with the hand-written lexer repairs like with the generated lexer")
+    void givenBrokenInput_whenRepairedWithLineMemoizationAndHandWrittenLexer_thenResultMatchesGeneratedLexer() {
+        // Given
+        final Random random = new Random(7);
+        final ToonRepairer generated = new ToonRepairer(RepairOptions.defaults().withLineMemoization(true));
+        final ToonRepairer handWritten = new ToonRepairer(
+                RepairOptions.defaults().withLineMemoization(true).withHandWrittenLexer(true));
+
+        for (int i = 0; i < 200; i++) {
+            final String input = ToonMutations.fuzz("name : \"Alice\"\n[3,] id,name :\n \"a\",\"b\"\nage : 42\n", random);
+
+            // When
+            final RepairResult result = handWritten.repairWithResult(input);
+
+            // Then
+            assertThat(result).as(input).isEqualTo(generated.repairWithResult(input));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("malformedHeaders")
+    @DisplayName("normalizes nested and tab-delimited array headers and leaves brackets on other lines alone")
+    void givenMalformedArrayHeader_whenParsed_thenHeaderIsNormalized(final String input, final String expected) {
+        // When
+        final String result = ToonRepair.parse(input);
+
+        // Then
+        assertThat(result).isEqualTo(expected);
+    }
+
+    static Stream<Arguments> malformedHeaders() {
+        return Stream.of(
+                Arguments.of("[;;;[3,] id :\n", "[3,] id :\n"),
+                Arguments.of("[3\tx] id :\n", "[3\t] id :\n"),
+                Arguments.of("[ 3\t| ] id :\n", "[3|] id :\n"),
+                Arguments.of("[3 id :\n x]\n", "[3 id :\n x:]\n"));
+    }
+
+    @Test
+    @DisplayName("drops a document that is nothing but a JSON-style string and keeps its line break")
+    void givenLoneQuotedString_whenParsed_thenItIsDropped() {
+        // When
+        final RepairResult result = ToonRepair.parseWithResult("\"a\\nb\"\r\n");
+
+        // Then
+        assertThat(result.text()).isEqualTo("\r\n");
+        assertThat(result.status()).isEqualTo(RepairStatus.REPAIRED);
+        assertThat(result.attempts()).isEqualTo(1);
+        assertThat(result.edits()).containsExactly(new RepairEdit(1, 0, 6, "", IssueKind.UNEXPECTED_TOKEN, 1, 0));
+        assertThat(ToonRepair.parse(" \"a\"")).isNotEmpty();
+        assertThat(ToonRepair.parse("\"\\u0041\"")).isNotEmpty();
+    }
+
     @Test
     @DisplayName("repairs missing colon and parses successfully")
     void givenToonWithMissingColon_whenParsed_thenSucceeds() {
@@ -113,4 +366,62 @@ class ToonRepairTest {
         assertThat(result).isEqualTo(expected);
     }
 
+    @Test
+    @DisplayName("returns valid input unchanged without repairing it")
+    void givenValidInput_whenParsed_thenSameInstanceIsReturned() {
+        // Given
+        // (a key directly followed by ':' lexes as one UNQUOTED_CELL, so valid keys are separated by a space)
+        final String input = """
+                name : "Alice"
+                age : 42
+                [3,] id,label :
+                "a","b","c"
+                """;
+
+        // When
+        final String result = ToonRepair.parse(input);
+
+        // Then
+        assertThat(new ToonRepairer().isValid(input)).isTrue();
+        assertThat(result).isSameAs(input);
+    }
+
+    @Test
+    @DisplayName("parses indented documents in blocks without repairing them and keeps a leading tab a delimiter")
+    void givenIndentedDocument_whenParsed_thenItIsValidAndLeadingTabsAreDelimiters() {
+        // Given
+        final String toon = "context :\n  task : \"Our favorite hikes\"\n  details :\n      season : \"summer\"\n"
+                + "    [2,] id,name :\n    \"a\",\"b\"\nage : 42\n";
+        final ToonLexer lexer = new ToonLexer(CharStreams.fromString("[1\t] a\tb :\n\tx\n"));
+
+        // When
+        final RepairResult result = ToonRepair.parseWithResult(toon);
+        final List<Integer> types = lexer.getAllTokens().stream().map(Token::getType).toList();
+
+        // Then
+        assertThat(result.status()).isEqualTo(RepairStatus.VALID);
+        assertThat(result.text()).isEqualTo(toon);
+        assertThat(types.subList(types.indexOf(ToonLexer.NEWLINE) + 1, types.size()))
+                .containsExactly(ToonLexer.TAB, ToonLexer.IDENT, ToonLexer.NEWLINE);
+    }
+
+    @Test
+    @DisplayName("a reused repairer gives the same results as fresh repairs")
+    void givenReusedRepairer_whenRepairingManyInputs_thenResultsMatchFreshRepairs() {
+        // Given
+        final ToonRepairer repairer = new ToonRepairer();
+        final Random random = new Random(0xC0FFEE);
+        final List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            inputs.add(ToonMutations.fuzz("name: \"Alice\"\nage: 42\n[3,] id,label:\n\"a\",\"b\",\"c\"\n", random));
+        }
+
+        // When
+        final List<String> reused = inputs.stream().map(repairer::repair).toList();
+        final List<String> batch = ToonRepair.repairAll(inputs);
+
+        // Then
+        assertThat(reused).isEqualTo(inputs.stream().map(input -> new ToonRepairer().repair(input)).toList());
+        assertThat(batch).isEqualTo(reused);
+    }
 }
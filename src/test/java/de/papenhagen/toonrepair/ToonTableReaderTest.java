@@ -0,0 +1,71 @@
+package de.papenhagen.toonrepair;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToonTableReaderTest {
+
+    @Test
+    @DisplayName("reads a numeric table into typed columns and stops at the next field")
+    void givenNumericTable_whenRead_thenCellsAreStoredByColumnAndType() {
+        // Given
+        final String toon = """
+            name : "hikes"
+            hikes[3|]{id|distance|done|note}:
+              1|7.5|true|"Blue Lake"
+              2|-12.25e1|false|null
+              9223372036854775807|0.1|true|007
+            count : 3
+            """;
+        final int header = toon.indexOf("hikes[");
+
+        // When
+        final ToonTable table = new ToonTableReader().read(toon, header);
+
+        // Then
+        assertThat(table.fields()).containsExactly("id", "distance", "done", "note");
+        assertThat(table.delimiter()).isEqualTo('|');
+        assertThat(table.rowCount()).isEqualTo(3);
+        assertThat(table.edits().isEmpty()).isTrue();
+        assertThat(toon.substring(table.end())).isEqualTo("count : 3\n");
+        assertThat(table.column("id").getLong(2)).isEqualTo(Long.MAX_VALUE);
+        assertThat(table.column("distance").getDouble(0)).isEqualTo(7.5);
+        assertThat(table.column("distance").getDouble(1)).isEqualTo(-122.5);
+        assertThat(table.column("distance").getDouble(2)).isEqualTo(0.1);
+        assertThat(table.column("done").getBoolean(1)).isFalse();
+        assertThat(table.column("note").getString(0)).isEqualTo("Blue Lake");
+        assertThat(table.column("note").type(1)).isEqualTo(ToonTable.CellType.NULL);
+        assertThat(table.column("note").getString(2)).isEqualTo("007");
+    }
+
+    @Test
+    @DisplayName("repairs rows with a wrong delimiter, missing or extra cells and a wrong declared length")
+    void givenBrokenRows_whenRead_thenRowsAreRepairedInline() {
+        // Given
+        final String toon = """
+            [2,] id,score,label :
+            1,2.5,"a"
+            2|3.5|"b"
+            3,4.5
+            4,5.5,"d",extra
+            """;
+
+        // When
+        final ToonTable table = new ToonTableReader().read(toon, 0);
+
+        // Then
+        assertThat(table.rowCount()).isEqualTo(4);
+        assertThat(table.column("score").getDouble(1)).isEqualTo(3.5);
+        assertThat(table.column("label").isNull(2)).isTrue();
+        assertThat(table.column("label").getString(3)).isEqualTo("d");
+        assertThat(table.edits().applyTo(toon)).isEqualTo("""
+            [4,] id,score,label :
+            1,2.5,"a"
+            2,3.5,"b"
+            3,4.5,null
+            4,5.5,"d"
+            """);
+    }
+}
@@ -0,0 +1,82 @@
+package de.papenhagen.toonrepair;
+
+import de.papenhagen.toonrepair.benchmarks.ToonCorpus;
+import org.antlr.v4.runtime.CommonToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the single {@link SyntaxIssue#apply(String)} implementations.
+ * Lives in the main package because the issue classes are package-private.
+ * Each issue targets a token in the middle of the document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SyntaxIssueBenchmark {
+
+    @Param({"MISSING_COLON", "ARRAY_HEADER", "UNEXPECTED_TOKEN", "NO_OP"})
+    private String kind;
+
+    @Param({"1024", "1048576", "104857600"})
+    private int size;
+
+    private String document;
+    private SyntaxIssue issue;
+
+    @Setup
+    public void setUp() {
+        final String corpus = ToonCorpus.generate(size, 0);
+        final int middle = corpus.indexOf("\nname_", corpus.length() / 2) + 1;
+
+        switch (kind) {
+            case "MISSING_COLON" -> {
+                // "name_N : ..." without its colon
+                final int colon = corpus.indexOf(" :", middle);
+                document = corpus.substring(0, colon) + corpus.substring(colon + 2);
+                issue = new MissingColonIssue(token(ToonParser.IDENT, middle, colon - 1));
+            }
+            case "ARRAY_HEADER" -> {
+                // "[3,]" broken into "[abc3,]"
+                final int bracket = corpus.indexOf('[', middle);
+                document = corpus.substring(0, bracket + 1) + "abc" + corpus.substring(bracket + 1);
+                issue = new ArrayHeaderIssue(token(ToonParser.IDENT, bracket + 1, bracket + 3));
+            }
+            case "UNEXPECTED_TOKEN" -> {
+                document = corpus.substring(0, middle) + '\t' + corpus.substring(middle);
+                issue = new UnexpectedTokenIssue(token(ToonParser.TAB, middle, middle));
+            }
+            case "NO_OP" -> {
+                document = corpus;
+                issue = new NoOpIssue();
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + kind);
+        }
+    }
+
+    @Benchmark
+    public String apply() {
+        return issue.apply(document);
+    }
+
+    private static CommonToken token(final int type, final int start, final int stop) {
+        final CommonToken token = new CommonToken(type);
+        token.setStartIndex(start);
+        token.setStopIndex(stop);
+        return token;
+    }
+}
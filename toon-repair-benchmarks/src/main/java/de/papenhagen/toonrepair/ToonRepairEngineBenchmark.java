@@ -0,0 +1,67 @@
+package de.papenhagen.toonrepair;
+
+import de.papenhagen.toonrepair.benchmarks.ToonCorpus;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the repair step of {@link ToonRepairEngine} in isolation.
+ * Lives in the main package because the issue classes are package-private.
+ * The document is parsed once per trial and its issues are kept, so only collecting and applying the edits
+ * is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToonRepairEngineBenchmark {
+
+    @Param({"1024", "1048576", "104857600"})
+    private int size;
+
+    @Param({"1", "10", "1000"})
+    private int faults;
+
+    private String document;
+    private List<SyntaxIssue> issues;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        document = ToonCorpus.generate(size, faults);
+
+        final ToonLexer lexer = new ToonLexer(CharStreams.fromString(document));
+        lexer.removeErrorListeners();
+        final ToonParser parser = new ToonParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        final ToonRepairEngine repairEngine = new ToonRepairEngine();
+        parser.setErrorHandler(new ToonRepairErrorStrategy(repairEngine));
+        try {
+            parser.toonFile();
+        } catch (RuntimeException ignored) {
+            // the issues collected so far are still repaired
+        }
+        issues = repairEngine.issues();
+    }
+
+    @Benchmark
+    public String repair() {
+        return ToonRepairEngine.collectEdits(document, issues).applyTo(document);
+    }
+}
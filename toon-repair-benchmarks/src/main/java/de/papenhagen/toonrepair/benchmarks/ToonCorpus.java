@@ -0,0 +1,72 @@
+package de.papenhagen.toonrepair.benchmarks;
+
+import de.papenhagen.toonrepair.ToonMutations;
+
+import java.util.Random;
+
+/**
+ * Generates benchmark documents of a given size with a given number of injected faults.
+ * Faults are produced by the same mutation operators as the fuzz tests, applied to single blocks
+ * so that the overall document size stays close to the requested one.
+ */
+public final class ToonCorpus {
+
+    private static final long SEED = 0xC0FFEEL;
+
+    private ToonCorpus() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Generates a document of roughly {@code sizeBytes} characters.
+     *
+     * @param sizeBytes the target document size
+     * @param faults    the number of mutations to inject, {@code 0} for a valid document
+     * @return the generated TOON document
+     */
+    public static String generate(final int sizeBytes, final int faults) {
+        final StringBuilder block = new StringBuilder();
+        final StringBuilder document = new StringBuilder(sizeBytes + 128);
+        int blocks = 0;
+        while (document.length() < sizeBytes) {
+            appendBlock(document, blocks++);
+        }
+        if (faults == 0) {
+            return document.toString();
+        }
+
+        // Distribute the faults over random blocks, then rebuild the document block by block
+        final Random random = new Random(SEED);
+        final int[] faultsPerBlock = new int[blocks];
+        for (int i = 0; i < faults; i++) {
+            faultsPerBlock[random.nextInt(blocks)]++;
+        }
+
+        document.setLength(0);
+        for (int i = 0; i < blocks; i++) {
+            if (faultsPerBlock[i] == 0) {
+                appendBlock(document, i);
+                continue;
+            }
+            block.setLength(0);
+            appendBlock(block, i);
+            for (int f = 0; f < faultsPerBlock[i]; f++) {
+                ToonMutations.applyRandomMutation(block, random);
+            }
+            document.append(block);
+        }
+        return document.toString();
+    }
+
+    /**
+     * Appends one valid block consisting of object fields, a tabular header and a row.
+     * Colons are preceded by a space because a key directly followed by ':' lexes as a single UNQUOTED_CELL.
+     */
+    private static void appendBlock(final StringBuilder target, final int index) {
+        target.append("id_").append(index).append(" : ").append(index).append('\n')
+                .append("name_").append(index).append(" : \"Alice\"\n")
+                .append("active_").append(index).append(" : true\n")
+                .append("[3,] id,label,score :\n")
+                .append("\"a\",\"b\",\"c\"\n");
+    }
+}
@@ -0,0 +1,46 @@
+package de.papenhagen.toonrepair.benchmarks;
+
+import de.papenhagen.toonrepair.ToonRepair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark of {@link ToonRepair#parse(String)} over valid and broken documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToonRepairBenchmark {
+
+    @Param({"1024", "1048576", "104857600"})
+    private int size;
+
+    @Param({"0", "1", "10", "1000"})
+    private int faults;
+
+    private String document;
+
+    @Setup
+    public void setUp() {
+        document = ToonCorpus.generate(size, faults);
+    }
+
+    @Benchmark
+    public String parse() {
+        return ToonRepair.parse(document);
+    }
+}
@@ -0,0 +1,108 @@
+package de.papenhagen.toonrepair.server;
+
+import de.papenhagen.toonrepair.IssueKind;
+import de.papenhagen.toonrepair.RepairMetrics;
+import de.papenhagen.toonrepair.RepairStatus;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a {@link ToonRepairServer}: requests per outcome and the {@link RepairMetrics} of its repairers,
+ * rendered in the Prometheus text format.
+ */
+final class ServerMetrics {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    /**
+     * How a request ended.
+     */
+    enum Outcome {
+        /**
+         * The input was repaired, or returned as is if valid.
+         */
+        OK,
+        /**
+         * The request was malformed.
+         */
+        BAD_REQUEST,
+        /**
+         * The request body exceeded the size limit.
+         */
+        TOO_LARGE,
+        /**
+         * The request was rejected because the admission queue was full or its deadline passed while waiting.
+         */
+        SHED,
+        /**
+         * The repair failed unexpectedly.
+         */
+        ERROR
+    }
+
+    private final Map<Outcome, LongAdder> requests = new EnumMap<>(Outcome.class);
+    private final RepairMetrics repairs = new RepairMetrics();
+
+    ServerMetrics() {
+        for (final Outcome outcome : Outcome.values()) {
+            requests.put(outcome, new LongAdder());
+        }
+    }
+
+    /**
+     * @return the listener to be set on the repairers of the server
+     */
+    RepairMetrics repairs() {
+        return repairs;
+    }
+
+    void record(final Outcome outcome) {
+        requests.get(outcome).increment();
+    }
+
+    long requests(final Outcome outcome) {
+        return requests.get(outcome).sum();
+    }
+
+    /**
+     * @param inFlight the number of repairs running right now
+     * @param queued   the number of requests waiting for a repairer right now
+     * @return the metrics in the Prometheus text format
+     */
+    String render(final int inFlight, final int queued) {
+        final StringBuilder out = new StringBuilder(2048);
+        out.append("# TYPE toon_repair_requests_total counter\n");
+        for (final Outcome outcome : Outcome.values()) {
+            sample(out, "toon_repair_requests_total", "outcome", outcome.name(), requests(outcome));
+        }
+        out.append("# TYPE toon_repair_in_flight gauge\n")
+                .append("toon_repair_in_flight ").append(inFlight).append('\n')
+                .append("# TYPE toon_repair_queued gauge\n")
+                .append("toon_repair_queued ").append(queued).append('\n');
+        out.append("# TYPE toon_repair_repairs_total counter\n");
+        for (final RepairStatus status : RepairStatus.values()) {
+            sample(out, "toon_repair_repairs_total", "status", status.name(), repairs.repairsWithStatus(status));
+        }
+        out.append("# TYPE toon_repair_issues_total counter\n");
+        for (final IssueKind kind : IssueKind.values()) {
+            sample(out, "toon_repair_issues_total", "kind", kind.name(), repairs.issues(kind));
+        }
+        out.append("# TYPE toon_repair_latency_seconds summary\n");
+        for (final double quantile : QUANTILES) {
+            out.append("toon_repair_latency_seconds{quantile=\"").append(quantile).append("\"} ")
+                    .append(String.format(Locale.ROOT, "%.9f", repairs.latencyPercentile(quantile * 100) / 1e9))
+                    .append('\n');
+        }
+        out.append("toon_repair_latency_seconds_count ").append(repairs.repairs()).append('\n');
+        return out.toString();
+    }
+
+    private static void sample(final StringBuilder out, final String name, final String label, final String value,
+                               final long sample) {
+        out.append(name).append('{').append(label).append("=\"").append(value.toLowerCase(Locale.ROOT))
+                .append("\"} ").append(sample).append('\n');
+    }
+}
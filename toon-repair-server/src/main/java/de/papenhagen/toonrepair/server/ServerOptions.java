@@ -0,0 +1,104 @@
+package de.papenhagen.toonrepair.server;
+
+import de.papenhagen.toonrepair.RepairOptions;
+
+import java.time.Duration;
+
+/**
+ * Configuration of a {@link ToonRepairServer}.
+ *
+ * @param repair               the options of the repairers serving the requests
+ * @param maxRequestBytes      the largest accepted request body in bytes
+ * @param deadline             the longest time a request may take from arrival to response, including the wait
+ *                             for a repairer; clients may ask for less
+ * @param maxConcurrentRepairs the number of repairs running at the same time
+ * @param maxQueuedRequests    the number of requests waiting for a repairer before further requests are shed
+ */
+public record ServerOptions(RepairOptions repair, int maxRequestBytes, Duration deadline, int maxConcurrentRepairs,
+                            int maxQueuedRequests) {
+
+    /**
+     * Default largest accepted request body.
+     */
+    public static final int DEFAULT_MAX_REQUEST_BYTES = 1024 * 1024;
+
+    /**
+     * Default deadline of a request.
+     */
+    public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(2);
+
+    /**
+     * Default number of requests waiting for a repairer.
+     */
+    public static final int DEFAULT_MAX_QUEUED_REQUESTS = 64;
+
+    /**
+     * Creates new ServerOptions.
+     *
+     * @throws IllegalArgumentException if a limit is not positive or the deadline is negative
+     */
+    public ServerOptions {
+        if (maxRequestBytes < 1) {
+            throw new IllegalArgumentException("maxRequestBytes must be positive: " + maxRequestBytes);
+        }
+        if (deadline.isNegative()) {
+            throw new IllegalArgumentException("deadline must not be negative: " + deadline);
+        }
+        if (maxConcurrentRepairs < 1) {
+            throw new IllegalArgumentException("maxConcurrentRepairs must be positive: " + maxConcurrentRepairs);
+        }
+        if (maxQueuedRequests < 0) {
+            throw new IllegalArgumentException("maxQueuedRequests must not be negative: " + maxQueuedRequests);
+        }
+    }
+
+    /**
+     * @return the options used by {@link ToonRepairServer#main(String[])}: repairers with the hand-written lexer,
+     * 1 MiB requests, a deadline of 2 seconds, one repair per core and {@value #DEFAULT_MAX_QUEUED_REQUESTS}
+     * waiting requests
+     */
+    public static ServerOptions defaults() {
+        return new ServerOptions(RepairOptions.defaults().withHandWrittenLexer(true), DEFAULT_MAX_REQUEST_BYTES,
+                DEFAULT_DEADLINE, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_QUEUED_REQUESTS);
+    }
+
+    /**
+     * @param repair the options of the repairers serving the requests
+     * @return a copy of these options with the given repair options
+     */
+    public ServerOptions withRepair(final RepairOptions repair) {
+        return new ServerOptions(repair, maxRequestBytes, deadline, maxConcurrentRepairs, maxQueuedRequests);
+    }
+
+    /**
+     * @param maxRequestBytes the largest accepted request body in bytes
+     * @return a copy of these options with the given size limit
+     */
+    public ServerOptions withMaxRequestBytes(final int maxRequestBytes) {
+        return new ServerOptions(repair, maxRequestBytes, deadline, maxConcurrentRepairs, maxQueuedRequests);
+    }
+
+    /**
+     * @param deadline the longest time a request may take from arrival to response
+     * @return a copy of these options with the given deadline
+     */
+    public ServerOptions withDeadline(final Duration deadline) {
+        return new ServerOptions(repair, maxRequestBytes, deadline, maxConcurrentRepairs, maxQueuedRequests);
+    }
+
+    /**
+     * @param maxConcurrentRepairs the number of repairs running at the same time
+     * @return a copy of these options with the given concurrency
+     */
+    public ServerOptions withMaxConcurrentRepairs(final int maxConcurrentRepairs) {
+        return new ServerOptions(repair, maxRequestBytes, deadline, maxConcurrentRepairs, maxQueuedRequests);
+    }
+
+    /**
+     * @param maxQueuedRequests the number of requests waiting for a repairer before further requests are shed
+     * @return a copy of these options with the given queue length
+     */
+    public ServerOptions withMaxQueuedRequests(final int maxQueuedRequests) {
+        return new ServerOptions(repair, maxRequestBytes, deadline, maxConcurrentRepairs, maxQueuedRequests);
+    }
+}
@@ -0,0 +1,249 @@
+package de.papenhagen.toonrepair.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.papenhagen.toonrepair.RepairResult;
+import de.papenhagen.toonrepair.RepairStatus;
+import de.papenhagen.toonrepair.ToonRepairer;
+import de.papenhagen.toonrepair.server.ServerMetrics.Outcome;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP server repairing TOON, built on the JDK's {@code com.sun.net.httpserver} with one virtual thread per request.
+ * <ul>
+ *     <li>{@code POST /repair} repairs the UTF-8 request body and answers with the repaired TOON; the headers
+ *     {@value #STATUS_HEADER} and {@value #ATTEMPTS_HEADER} tell how the repair ended. A request may shorten its
+ *     deadline with {@value #DEADLINE_HEADER} in milliseconds.</li>
+ *     <li>{@code GET /metrics} reports requests per outcome, running and waiting repairs, repair statuses, issues
+ *     and latency percentiles in the Prometheus text format.</li>
+ * </ul>
+ * Repairs run on a fixed set of {@link ToonRepairer}s, one per allowed concurrent repair, so CPU-bound parses cannot
+ * crowd out each other however many requests arrive. A request waits for a free repairer at most until its deadline,
+ * and only a bounded number of requests may wait; beyond that, requests are shed with 503 right away. The rest of the
+ * deadline is the time budget of the repair, which is also checked while parsing. A body above the size limit is
+ * rejected with 413 before it is read in full, and bodies are read before a repairer is taken, so a slow client only
+ * delays itself. A single huge or pathological input therefore only ever blocks one repairer for at most one
+ * deadline.
+ */
+public final class ToonRepairServer implements AutoCloseable {
+
+    /**
+     * Port used by {@link #main(String[])} without arguments.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * Request header with the deadline of the request in milliseconds, capped by {@link ServerOptions#deadline()}.
+     */
+    public static final String DEADLINE_HEADER = "X-Repair-Deadline-Ms";
+
+    /**
+     * Response header with the {@link RepairStatus} of the repair.
+     */
+    public static final String STATUS_HEADER = "X-Repair-Status";
+
+    /**
+     * Response header with the number of repair attempts.
+     */
+    public static final String ATTEMPTS_HEADER = "X-Repair-Attempts";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ServerOptions options;
+    private final BlockingQueue<ToonRepairer> repairers;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    private ToonRepairServer(final HttpServer server, final ServerOptions options) {
+        this.server = server;
+        this.options = options;
+        this.repairers = new ArrayBlockingQueue<>(options.maxConcurrentRepairs());
+        for (int i = 0; i < options.maxConcurrentRepairs(); i++) {
+            repairers.add(new ToonRepairer(options.repair().withListener(metrics.repairs())));
+        }
+    }
+
+    /**
+     * Starts a server. The listener of the repair options is replaced by the metrics of the server.
+     *
+     * @param address the address to listen on, port 0 for any free port
+     * @param options the server configuration
+     * @return the running server
+     * @throws IOException if the address cannot be bound
+     */
+    public static ToonRepairServer start(final InetSocketAddress address, final ServerOptions options)
+            throws IOException {
+        final ToonRepairServer repairServer = new ToonRepairServer(HttpServer.create(address, 0), options);
+        repairServer.server.createContext("/repair", repairServer::repair);
+        repairServer.server.createContext("/metrics", repairServer::metrics);
+        repairServer.server.setExecutor(repairServer.executor);
+        repairServer.server.start();
+        return repairServer;
+    }
+
+    /**
+     * Starts a server with the {@linkplain ServerOptions#defaults() default options} on all interfaces.
+     *
+     * @param args optionally the port, {@value #DEFAULT_PORT} by default
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(final String[] args) throws IOException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final ToonRepairServer repairServer = start(new InetSocketAddress(port), ServerOptions.defaults());
+        Runtime.getRuntime().addShutdownHook(new Thread(repairServer::close));
+    }
+
+    /**
+     * @return the address the server listens on
+     */
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and waits for the running ones to complete.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void repair(final HttpExchange exchange) throws IOException {
+        final long started = System.nanoTime();
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, Outcome.BAD_REQUEST, "Use POST\n");
+                return;
+            }
+            final long deadlineNanos = deadlineNanos(exchange);
+            if (deadlineNanos < 0) {
+                respond(exchange, 400, Outcome.BAD_REQUEST, "Invalid " + DEADLINE_HEADER + "\n");
+                return;
+            }
+            // the server has validated the length already
+            final String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (length != null && Long.parseLong(length) > options.maxRequestBytes()) {
+                rejectTooLarge(exchange);
+                return;
+            }
+
+            final byte[] body = readBody(exchange.getRequestBody(), options.maxRequestBytes());
+            if (body == null) {
+                rejectTooLarge(exchange);
+                return;
+            }
+            final ToonRepairer repairer = acquire(started, deadlineNanos);
+            if (repairer == null) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, Outcome.SHED, "Too many requests\n");
+                return;
+            }
+            final RepairResult result;
+            try {
+                result = repairer.repairWithResult(new String(body, StandardCharsets.UTF_8),
+                        Duration.ofNanos(remaining(started, deadlineNanos)));
+            } catch (RuntimeException ex) {
+                respond(exchange, 500, Outcome.ERROR, "Repair failed\n");
+                return;
+            } finally {
+                repairers.add(repairer);
+            }
+            exchange.getResponseHeaders().set(STATUS_HEADER, result.status().name());
+            exchange.getResponseHeaders().set(ATTEMPTS_HEADER, Integer.toString(result.attempts()));
+            respond(exchange, 200, Outcome.OK, result.text());
+        }
+    }
+
+    private void metrics(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final int inFlight = options.maxConcurrentRepairs() - repairers.size();
+            final byte[] body = metrics.render(inFlight, queued.get()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * Takes a free repairer, waiting in the admission queue until the deadline if none is free.
+     *
+     * @return the repairer, {@code null} if the queue is full or the deadline passed while waiting
+     */
+    private ToonRepairer acquire(final long started, final long deadlineNanos) throws IOException {
+        final ToonRepairer free = repairers.poll();
+        if (free != null) {
+            return free;
+        }
+        if (queued.incrementAndGet() > options.maxQueuedRequests()) {
+            queued.decrementAndGet();
+            return null;
+        }
+        try {
+            return repairers.poll(remaining(started, deadlineNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a repairer", ex);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the deadline of the request in nanoseconds, -1 if the request header is invalid
+     */
+    private long deadlineNanos(final HttpExchange exchange) {
+        final long max = options.deadline().toNanos();
+        final String header = exchange.getRequestHeaders().getFirst(DEADLINE_HEADER);
+        if (header == null) {
+            return max;
+        }
+        try {
+            final long millis = Long.parseLong(header.trim());
+            return millis < 0 ? -1 : Math.min(max, TimeUnit.MILLISECONDS.toNanos(millis));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static long remaining(final long started, final long deadlineNanos) {
+        return Math.max(0, deadlineNanos - (System.nanoTime() - started));
+    }
+
+    /**
+     * Reads a request body of at most {@code limit} bytes.
+     *
+     * @return the body, {@code null} if it is larger than the limit
+     */
+    private static byte[] readBody(final InputStream in, final int limit) throws IOException {
+        final byte[] body = in.readNBytes(limit);
+        return in.read() < 0 ? body : null;
+    }
+
+    private void rejectTooLarge(final HttpExchange exchange) throws IOException {
+        respond(exchange, 413, Outcome.TOO_LARGE, "Request body exceeds " + options.maxRequestBytes() + " bytes\n");
+    }
+
+    private void respond(final HttpExchange exchange, final int status, final Outcome outcome, final String text)
+            throws IOException {
+        metrics.record(outcome);
+        final byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package de.papenhagen.toonrepair.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToonRepairServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ToonRepairServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = ToonRepairServer.start(new InetSocketAddress("127.0.0.1", 0),
+                ServerOptions.defaults().withMaxRequestBytes(4 * 1024).withMaxConcurrentRepairs(2));
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+        client.close();
+    }
+
+    @Test
+    @DisplayName("repairs the request body and reports the outcome in headers and metrics")
+    void givenBrokenToon_whenPosted_thenRepairedToonIsReturned() throws Exception {
+        // When
+        final HttpResponse<String> response = post("name \"Alice\"\n", null);
+        final HttpResponse<String> tooLarge = post("name : 1\n".repeat(1_000), null);
+        final HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(uri("/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("name: \"Alice\"\n");
+        assertThat(response.headers().firstValue(ToonRepairServer.STATUS_HEADER)).hasValue("FIXED_POINT");
+        assertThat(tooLarge.statusCode()).isEqualTo(413);
+        assertThat(metrics.body())
+                .contains("toon_repair_requests_total{outcome=\"ok\"} 1\n")
+                .contains("toon_repair_requests_total{outcome=\"too_large\"} 1\n")
+                .contains("toon_repair_issues_total{kind=\"missing_colon\"} 1\n")
+                .contains("toon_repair_in_flight 0\n");
+    }
+
+    @Test
+    @DisplayName("stops a repair at the deadline of the request")
+    void givenPassedDeadline_whenBrokenInputIsPosted_thenRepairStopsAtTheDeadline() throws Exception {
+        // Given
+        final String input = "name \"Alice\"\nage 1\n".repeat(100);
+
+        // When
+        final HttpResponse<String> response = post(input, "0");
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(ToonRepairServer.STATUS_HEADER)).hasValue("TIME_BUDGET_EXCEEDED");
+        assertThat(response.body()).isEqualTo(input);
+        assertThat(post(input, "x").statusCode()).isEqualTo(400);
+    }
+
+    private HttpResponse<String> post(final String body, final String deadlineMillis) throws Exception {
+        final HttpRequest.Builder request = HttpRequest.newBuilder(uri("/repair"))
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (deadlineMillis != null) {
+            request.header(ToonRepairServer.DEADLINE_HEADER, deadlineMillis);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(final String path) {
+        return URI.create("http://127.0.0.1:" + server.address().getPort() + path);
+    }
+}